@@ -1,21 +1,37 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 import javax.swing.*;
 
 class App {
 
-    private static void initWindow() {
+    // true when the game carries on from goblin.load instead of starting afresh.
+    // set on the loader thread before the game is handed to the swing thread
+    private static boolean loadedFromSave;
+
+    private static void initWindow(boolean active) {
         // create a window frame and set the title in the toolbar
         JFrame window = new JFrame("Goblin Adventure");
         // when we close the window, stop the app
         window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        // create the jpanel to draw on.
-        // this also initializes the game loop
-        Board board = new Board();
-        // add the jpanel to the window
-        window.add(board);
-        // pass keyboard inputs to the jpanel
-        window.addKeyListener(board);
-        
+        // show a loading screen the same size as the board straight away, and
+        // read the images and set up the game behind it. one step for each
+        // image, one for the game and one for scaling the images
+        int tileSize = Integer.getInteger("goblin.tileSize", GameConfig.DEFAULT_TILE_SIZE);
+        LoadingScreen loading = new LoadingScreen(
+            tileSize * Integer.getInteger("goblin.viewColumns", Game.COLUMNS),
+            tileSize * Integer.getInteger("goblin.viewRows", Game.ROWS),
+            Sprites.getImageCount() + 2
+        );
+        loading.setFirstFrameListener(() -> reportStartup("first frame"));
+        window.add(loading);
+
         // don't allow the user to resize the window
         window.setResizable(false);
         // fit the window size around the components (just our jpanel).
@@ -25,15 +41,167 @@ class App {
         window.setLocationRelativeTo(null);
         // display the window
         window.setVisible(true);
+
+        // the images are read at the same time as each other and as the game
+        // is set up, each on its own loading thread
+        ExecutorService loader = Executors.newFixedThreadPool(Sprites.getImageCount() + 1, task -> {
+            Thread thread = new Thread(task, "Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<Void> images = Sprites.preload(loader, loading::stepFinished);
+        CompletableFuture<Game> game = CompletableFuture.supplyAsync(() -> {
+            Game created = createGame();
+            loading.stepFinished();
+            return created;
+        }, loader);
+        images.thenCombine(game, (done, created) -> created)
+            .thenApplyAsync(created -> {
+                // scale the images for the board's tile size now too, so the
+                // first frame of the game doesn't have to
+                Sprites.prepare(created.getConfig().getTileSize());
+                loading.stepFinished();
+                return created;
+            }, loader)
+            .whenComplete((created, exc) -> {
+                loader.shutdown();
+                SwingUtilities.invokeLater(() -> {
+                    if (exc != null) {
+                        System.out.println("Error starting the game: " + exc.getCause());
+                        System.exit(1);
+                    }
+                    showGame(window, created, active);
+                });
+            });
+    }
+
+    // swaps the loading screen for the game once everything is loaded. the
+    // game loop only starts once the board is in the window, so no tick runs
+    // before the game can be drawn
+    private static void showGame(JFrame window, Game game, boolean active) {
+        window.getContentPane().removeAll();
+
+        if (active) {
+            // draw with our own game loop thread instead of the swing timer
+            GameCanvas canvas = new GameCanvas(game);
+            canvas.setFirstFrameListener(() -> reportStartup("playable"));
+            window.add(canvas);
+            window.addKeyListener(canvas);
+            reportFramePacing(() -> canvas.getFrameStats());
+            reportInputLatency(canvas.getInputQueue());
+            recordInputs(canvas.getGame());
+            registerPerformance(canvas.getPerformance());
+        } else {
+            // create the jpanel to draw on.
+            // this also initializes the game loop
+            Board board = new Board(game);
+            board.setFirstFrameListener(() -> reportStartup("playable"));
+            // add the jpanel to the window
+            window.add(board);
+            // pass keyboard inputs to the jpanel
+            window.addKeyListener(board);
+            reportFramePacing(() -> board.getFrameStats());
+            reportInputLatency(board.getInputQueue());
+            recordInputs(board.getGame());
+            registerPerformance(board.getPerformance());
+        }
+
+        // fit the window around the game, in case it's a different size than
+        // the loading screen (like a saved game with another tile size)
+        window.pack();
+        window.setLocationRelativeTo(null);
+    }
+
+    private static void reportStartup(String what) {
+        // how long after the JVM started the window showed something, and
+        // when the game itself was first drawn
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        System.out.println("Startup: " + what + " after " + uptime + " ms");
+    }
+
+    private static Game createGame() {
+        // start with -Dgoblin.load=<file> to carry on from a saved game
+        String path = System.getProperty("goblin.load");
+        if (path != null) {
+            try {
+                Game game = Snapshot.load(Paths.get(path));
+                loadedFromSave = true;
+                return game;
+            } catch (IOException exc) {
+                System.out.println("Error loading saved game, starting a new one: " + exc.getMessage());
+            }
+        }
+        // start with -Dgoblin.level=<file> to play a hand made level, see Level
+        String level = System.getProperty("goblin.level");
+        if (level != null) {
+            try {
+                return Level.load(Paths.get(level));
+            } catch (IOException exc) {
+                System.out.println("Error loading level, starting a random one: " + exc.getMessage());
+            }
+        }
+        return new Game(GameConfig.fromSystemProperties());
+    }
+
+    private static void reportFramePacing(Supplier<FrameStats> stats) {
+        // print how evenly the frames were shown when the app exits, so the two
+        // ways of running the game can be compared
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Frame pacing: " + stats.get());
+        }));
+    }
+
+    private static void reportInputLatency(InputQueue inputQueue) {
+        // print how long moves took to show up on screen after the key was pressed
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Input latency: " + inputQueue);
+        }));
+    }
+
+    private static void registerPerformance(Performance performance) {
+        // start with -Dgoblin.jmx=true to read the overlay's numbers from
+        // jconsole or any other JMX monitoring
+        if (Boolean.getBoolean("goblin.jmx")) {
+            performance.register();
+        }
+    }
+
+    private static void recordInputs(Game game) {
+        // start with -Dgoblin.record=<file> to save everything needed to play
+        // this exact game again with Replay
+        String path = System.getProperty("goblin.record");
+        if (path == null) {
+            return;
+        }
+        if (loadedFromSave) {
+            // the log only has the settings and the keys, and a replay can't
+            // get back to where the save left off from those
+            System.out.println("Error: can't record a game carried on from a save, start a new game to record one");
+            return;
+        }
+        Level level = game.getLevel();
+        InputLog log = new InputLog(game.getConfig(), level == null ? null : level.getPath());
+        game.setInputLog(log);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            log.finish(game);
+            try {
+                log.save(Paths.get(path));
+            } catch (IOException exc) {
+                System.out.println("Error saving input log: " + exc.getMessage());
+            }
+        }));
     }
 
     public static void main(String[] args) {
+        // start with --active to use the GameCanvas game loop
+        boolean active = Arrays.asList(args).contains("--active");
+
         // invokeLater() is used here to prevent our graphics processing from
         // blocking the GUI. https://stackoverflow.com/a/22534931/4655368
         // this is a lot of boilerplate code that you shouldn't be too concerned about.
         // just know that when main runs it will call initWindow() once.
         SwingUtilities.invokeLater(() -> {
-            initWindow();
+            initWindow(active);
         });
     }
 }
\ No newline at end of file
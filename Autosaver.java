@@ -0,0 +1,84 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// saves the game every so often while it is being played. start the game with
+//
+//     java -Dgoblin.save=game.sav App
+//
+// to save every 30 seconds (change it with goblin.autosaveSeconds), and with
+// -Dgoblin.load=game.sav to carry on from a save. copying the game into
+// memory happens between ticks on the game's own thread, which is quick
+// because only the player, coins and counters are copied there. the walls
+// and bombs are turned into bytes on a background thread, together with
+// writing the file, so neither a big world nor a slow disk ever holds up a tick
+public class Autosaver {
+
+    private static final int DEFAULT_SECONDS = 30;
+
+    private final Game game;
+    private final Path path;
+    private final long intervalTicks;
+    // writes the files, one at a time
+    private final ExecutorService writer;
+    // true while a save is being written. if the disk can't keep up we skip a
+    // save instead of piling them up
+    private final AtomicBoolean writing = new AtomicBoolean();
+    // the last snapshot taken, whose walls and bombs the next one can reuse
+    private Snapshot previous;
+    private long lastSaveTick;
+
+    public Autosaver(Game game, Path path, long intervalTicks) {
+        this.game = game;
+        this.path = path;
+        this.intervalTicks = intervalTicks;
+        lastSaveTick = game.getTicks();
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave");
+            // don't keep the app alive just because a save is being written
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // returns an autosaver if goblin.save is set, or null if it isn't
+    public static Autosaver fromSystemProperties(Game game) {
+        String path = System.getProperty("goblin.save");
+        if (path == null) {
+            return null;
+        }
+        long seconds = Long.getLong("goblin.autosaveSeconds", DEFAULT_SECONDS);
+        return new Autosaver(game, Paths.get(path), seconds * Game.TICKS_PER_SECOND);
+    }
+
+    // call this on the game's thread after every tick
+    public void afterTick() {
+        if (game.getTicks() - lastSaveTick < intervalTicks) {
+            return;
+        }
+        if (!writing.compareAndSet(false, true)) {
+            return;
+        }
+        lastSaveTick = game.getTicks();
+        Snapshot snapshot = Snapshot.capture(game, previous);
+        previous = snapshot;
+        writer.execute(() -> {
+            try {
+                snapshot.write(path);
+            } catch (IOException exc) {
+                System.out.println("Error saving the game: " + exc.getMessage());
+            } finally {
+                writing.set(false);
+            }
+        });
+    }
+
+    public void shutdown() {
+        // let a save that has already started finish
+        writer.shutdown();
+    }
+
+}
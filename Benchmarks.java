@@ -0,0 +1,560 @@
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+// a small benchmark harness for the hot paths of the game. run it with
+//
+//     javac *.java && java -Djava.awt.headless=true Benchmarks [name]
+//
+// every benchmark is run for each board size and coin count below. passing a
+// name (like "tick" or "paint") only runs the benchmarks whose name contains it.
+// the results are the average time per call and how many bytes each call
+// allocated, so any change to these methods can be checked against them first.
+// the "steadyState" check plays 100,000 ticks through Board and exits with an
+// error if they allocated anything, since garbage there shows up as stutters
+public class Benchmarks {
+
+    // board sizes (columns x rows) and coin counts every benchmark is run with
+    private static final int[][] BOARD_SIZES = {{20, 15}, {100, 75}, {1000, 750}};
+    private static final int[] COIN_COUNTS = {5, 1000, 100000};
+
+    // how long each benchmark warms up for before being measured, and how
+    // many measured rounds of the same length are averaged together
+    private static final long ROUND_NANOS = 500_000_000L;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+    // how many ticks the steady state check plays, after the same number to warm up
+    private static final int STEADY_STATE_TICKS = 100_000;
+    // the size of the world the level benchmarks load, and what's on it
+    private static final int LEVEL_SIZE = 3000;
+    private static final int LEVEL_WALLS = 900_000;
+    private static final int LEVEL_BOMBS = 90_000;
+    // how many times each level is loaded, after one to warm up
+    private static final int LEVEL_LOADS = 5;
+    // how long the idle check leaves the game alone for
+    private static final int IDLE_MINUTES = 3;
+    // how many walls, bombs and coins are on screen for the rendering
+    // benchmarks, which draw a zoomed out view of a whole world this big
+    private static final int[] RENDER_ENTITY_COUNTS = {1_000, 100_000, 1_000_000};
+    private static final int RENDER_COLUMNS = 1100;
+    private static final int RENDER_ROWS = 1000;
+    private static final int RENDER_TILE_SIZE = 2;
+
+    // results are written here so the JIT can't throw the work away
+    static volatile long sink;
+
+    // the piece of work being measured. it is called over and over again
+    interface Operation {
+        void run();
+    }
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        System.out.printf("%-12s %-10s %8s %14s %12s%n", "benchmark", "board", "coins", "ns/op", "bytes/op");
+
+        for (int[] size : BOARD_SIZES) {
+            for (int coinCount : COIN_COUNTS) {
+                Game game = createGame(size[0], size[1], coinCount);
+                // how many coins actually fit on the board
+                int coins = game.getCoinCount();
+                Player player = game.getPlayer();
+                Grid grid = game.getGrid();
+                String params = size[0] + "x" + size[1];
+
+                if ("tick".contains(filter)) {
+                    run("tick", params, coins, () -> player.tick(grid));
+                }
+                if ("canMove".contains(filter)) {
+                    run("canMove", params, coins, () -> {
+                        sink += player.canMove(1, 0, grid) ? 1 : 0;
+                    });
+                }
+                if ("scan".contains(filter)) {
+                    // a pass over every wall, bomb and coin on the board
+                    run("scan", params, coins, () -> sink += scan(grid));
+                }
+                if ("collectCoins".contains(filter)) {
+                    Point pos = player.getPos();
+                    run("collectCoins", params, coins, () -> {
+                        // put a coin under the player the way the spawner does, so
+                        // every call picks one up and takes it off the board
+                        game.placeCoin(pos.x, pos.y, false);
+                        game.collectCoins();
+                        // Board empties the dirty tiles every tick, and the score
+                        // is kept below the winning score
+                        game.getDirtyTiles().clear();
+                        player.addScore(-player.getScore());
+                    });
+                }
+                if ("nextStep".contains(filter) || "astar".contains(filter)
+                        || "coinUpdate".contains(filter) || "fieldRebuild".contains(filter)) {
+                    runPathfinding(game, params, coins, filter);
+                }
+                if ("generate".contains(filter)) {
+                    // restart() puts down as many coins as the config asks for,
+                    // so this game's config asks for this many
+                    Game generateGame = new Game(new GameConfig(size[0], size[1], Game.NUM_WALLS,
+                        Game.NUM_BOMBS, coinCount, GameConfig.DEFAULT_TILE_SIZE, Game.COLUMNS,
+                        Game.ROWS, 42).withCoinLimits(Math.max(coinCount, Game.MAX_COINS), 0, 0,
+                        CoinField.OLDEST_FIRST));
+                    run("generate", params, generateGame.getCoinCount(), generateGame::restart);
+                }
+                if ("paint".contains(filter)) {
+                    // the benchmarks above may have moved the player or the coins
+                    Game paintGame = createGame(size[0], size[1], coinCount);
+                    Board board = new Board(paintGame);
+                    // only the camera's view is drawn, whatever the size of the board
+                    BufferedImage canvas = new BufferedImage(
+                        board.getPreferredSize().width,
+                        board.getPreferredSize().height,
+                        BufferedImage.TYPE_INT_RGB
+                    );
+                    run("paint", params, coins, () -> {
+                        Graphics2D g2d = canvas.createGraphics();
+                        board.paintComponent(g2d);
+                        g2d.dispose();
+                    });
+                }
+            }
+        }
+
+        for (int entities : RENDER_ENTITY_COUNTS) {
+            runRendering(entities, filter);
+        }
+
+        if ("levelText levelBinary".contains(filter)) {
+            runLevels(filter);
+        }
+
+        if ("idle".contains(filter)) {
+            if (!checkIdle()) {
+                System.out.println("Error: the game played differently with TickScheduler or its ticks don't add up, see idle above");
+                System.exit(1);
+            }
+        }
+
+        if ("steadyState".contains(filter)) {
+            boolean allocated = false;
+            for (int[] size : BOARD_SIZES) {
+                allocated |= checkSteadyState(size[0], size[1]);
+            }
+            if (allocated) {
+                System.out.println("Error: the tick path allocated memory, see steadyState above");
+                System.exit(1);
+            }
+        }
+    }
+
+    // plays ticks the same way the Swing timer does, with the player wandering
+    // around picking up coins, and returns true if any of them allocated memory.
+    // there are no bombs and the score is kept below the winning score, so the
+    // round never ends. a coin is asked for through Game.requestCoin() whenever
+    // there are fewer than at the start, like the spawner would, and the coin
+    // limit is at least that many so none are ever thrown out to make room
+    private static boolean checkSteadyState(int columns, int rows) {
+        int coinCount = Math.min(columns * rows / 10, 10000);
+        Game game = new Game(new GameConfig(columns, rows, Game.NUM_WALLS, 0, coinCount,
+            GameConfig.DEFAULT_TILE_SIZE, Game.COLUMNS, Game.ROWS, 42).withCoinLimits(
+            Math.max(coinCount, Game.MAX_COINS), Game.COIN_TIME_TO_LIVE,
+            Game.SPECIAL_COIN_TIME_TO_LIVE, CoinField.OLDEST_FIRST));
+        Board board = new Board(game);
+        int coinTotal = game.getCoinCount();
+        // the key presses are made up front, like the ones Swing hands us
+        int[] keys = {KeyEvent.VK_UP, KeyEvent.VK_RIGHT, KeyEvent.VK_DOWN, KeyEvent.VK_LEFT};
+        Random rand = new Random(42);
+        KeyEvent[] presses = new KeyEvent[1024];
+        for (int i = 0; i < presses.length; i++) {
+            int key = keys[rand.nextInt(keys.length)];
+            presses[i] = new KeyEvent(board, KeyEvent.KEY_PRESSED, 0, 0, key, KeyEvent.CHAR_UNDEFINED);
+        }
+
+        long bytes = 0;
+        long elapsed = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            // the first pass warms up, the second one is measured
+            long startBytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < STEADY_STATE_TICKS; i++) {
+                board.keyPressed(presses[i % presses.length]);
+                board.actionPerformed(null);
+                if (game.getCoinCount() < coinTotal) {
+                    game.requestCoin();
+                }
+                game.getPlayer().addScore(-game.getScore());
+            }
+            elapsed = System.nanoTime() - start;
+            bytes = allocatedBytes() - startBytes - measuringBytes();
+        }
+        System.out.printf(
+            "%-12s %-10s %8d %14.1f %12.1f   (%d bytes over %d ticks)%n",
+            "steadyState", columns + "x" + rows, coinTotal,
+            (double) elapsed / STEADY_STATE_TICKS, (double) bytes / STEADY_STATE_TICKS,
+            bytes, STEADY_STATE_TICKS
+        );
+        return bytes != 0;
+    }
+
+    // how long it takes to start a game on a level of a multi-million tile
+    // world, from the text form and from the binary form. the level is a
+    // random board saved with Level.save(), and every loaded game is checked
+    // against it
+    private static void runLevels(String filter) {
+        Game original = new Game(new GameConfig(LEVEL_SIZE, LEVEL_SIZE, LEVEL_WALLS, LEVEL_BOMBS,
+            Game.MAX_COINS, GameConfig.DEFAULT_TILE_SIZE, Game.COLUMNS, Game.ROWS, 42));
+        String params = LEVEL_SIZE + "x" + LEVEL_SIZE;
+        for (boolean binary : new boolean[] {false, true}) {
+            String name = binary ? "levelBinary" : "levelText";
+            if (!name.contains(filter)) {
+                continue;
+            }
+            Path path = null;
+            try {
+                path = Files.createTempFile("goblin", binary ? ".level" : ".txt");
+                Level.save(original, path, binary);
+                Level level = Level.open(path);
+                Game loaded = null;
+                long total = 0;
+                for (int i = 0; i <= LEVEL_LOADS; i++) {
+                    long start = System.nanoTime();
+                    loaded = level.start(original.getConfig());
+                    if (i > 0) {
+                        total += System.nanoTime() - start;
+                    }
+                }
+                boolean same = loaded.getGrid().getWallCount() == original.getGrid().getWallCount()
+                    && loaded.getGrid().getBombCount() == original.getGrid().getBombCount()
+                    && loaded.getCoinCount() == original.getCoinCount();
+                System.out.printf(
+                    "%-12s %-10s %8d   %.1f ms to start a game from a %.1f MB file (same board: %b)%n",
+                    name, params, loaded.getCoinCount(), total / 1e6 / LEVEL_LOADS,
+                    Files.size(path) / 1e6, same
+                );
+            } catch (IOException exc) {
+                System.out.println("Error in " + name + ": " + exc.getMessage());
+            } finally {
+                if (path != null) {
+                    path.toFile().delete();
+                }
+            }
+        }
+    }
+
+    // leaves a game alone for a few minutes on a pretend clock, with nobody at
+    // the keyboard and a coin asked for every CoinSpawner.SPAWN_PERIOD seconds
+    // like the spawner does. counts the ticks, and the ticks that changed
+    // something on screen (which Board would paint), once with the timer
+    // firing every tick and once with a TickScheduler. the coins start
+    // running out after a minute, so that's in there too. returns true if
+    // both games ended up the same and the scheduler's skipped ticks make up
+    // the difference in tick counts
+    private static boolean checkIdle() {
+        long tickNanos = Game.TICK_MILLIS * 1_000_000L;
+        long spawnNanos = CoinSpawner.SPAWN_PERIOD * 1_000_000_000L;
+        long endNanos = IDLE_MINUTES * 60_000_000_000L;
+
+        // the timer firing every tick. a coin asked for before a tick is
+        // added on that tick
+        Game fixed = createIdleGame();
+        long fixedTicks = 0;
+        long fixedPaints = 0;
+        long nextSpawn = 0;
+        for (long now = tickNanos; now <= endNanos; now += tickNanos) {
+            while (nextSpawn < now) {
+                fixed.requestCoin();
+                nextSpawn += spawnNanos;
+            }
+            fixed.step(Game.NONE);
+            fixedTicks++;
+            if (fixed.getDirtyTiles().size() > 0) {
+                fixedPaints++;
+            }
+        }
+
+        // the timer only firing when the scheduler asks for it. a coin wakes
+        // it up, like Board's spawn listener does
+        Game scheduled = createIdleGame();
+        TickScheduler scheduler = new TickScheduler(tickNanos);
+        long scheduledTicks = 0;
+        long scheduledPaints = 0;
+        long nextTick = tickNanos;
+        nextSpawn = 0;
+        while (Math.min(nextTick, nextSpawn) <= endNanos) {
+            if (nextSpawn < nextTick) {
+                scheduled.requestCoin();
+                long wait = scheduler.wake(nextSpawn);
+                if (wait >= 0) {
+                    nextTick = Math.min(nextTick, nextSpawn + wait);
+                }
+                nextSpawn += spawnNanos;
+                continue;
+            }
+            long now = nextTick;
+            scheduler.beforeTick(scheduled, now);
+            scheduled.step(Game.NONE);
+            scheduledTicks++;
+            if (scheduled.getDirtyTiles().size() > 0) {
+                scheduledPaints++;
+            }
+            long wait = scheduler.afterTick(scheduled, false);
+            nextTick = wait == TickScheduler.FOREVER ? Long.MAX_VALUE : now + wait;
+        }
+        // the scheduled game may be asleep at the end, so catch its clock up
+        long skipped = scheduler.getSkippedTicks()
+            + scheduled.skipQuietTicks(fixed.getTicks() - scheduled.getTicks());
+
+        // every tick the fixed timer ran was either run or skipped by the
+        // scheduler, and it has to have actually skipped some
+        boolean accounted = scheduledTicks + skipped == fixedTicks && skipped > 0;
+        boolean same = fixed.getTicks() == scheduled.getTicks() && coinsMatch(fixed, scheduled);
+        System.out.printf(
+            "%-12s %-10s %8d   per minute: %d ticks and %d paints every %d ms, %d ticks, %d skipped and %d paints scheduled (same game: %b)%n",
+            "idle", fixed.getColumns() + "x" + fixed.getRows(), fixed.getCoinCount(),
+            fixedTicks / IDLE_MINUTES, fixedPaints / IDLE_MINUTES, Game.TICK_MILLIS,
+            scheduledTicks / IDLE_MINUTES, skipped / IDLE_MINUTES, scheduledPaints / IDLE_MINUTES,
+            same && accounted
+        );
+        return same && accounted;
+    }
+
+    private static Game createIdleGame() {
+        return new Game(new GameConfig(Game.COLUMNS, Game.ROWS, Game.NUM_WALLS, Game.NUM_BOMBS,
+            Game.NUM_COINS, GameConfig.DEFAULT_TILE_SIZE, Game.COLUMNS, Game.ROWS, 42));
+    }
+
+    // true if both games have the same coins in the same places, which
+    // arrived on the same ticks
+    private static boolean coinsMatch(Game a, Game b) {
+        CoinField first = a.getCoinField();
+        CoinField second = b.getCoinField();
+        int[] firstSlots = first.slotsByArrival();
+        int[] secondSlots = second.slotsByArrival();
+        if (firstSlots.length != secondSlots.length) {
+            return false;
+        }
+        for (int i = 0; i < firstSlots.length; i++) {
+            int x = firstSlots[i];
+            int y = secondSlots[i];
+            if (first.getX(x) != second.getX(y) || first.getY(x) != second.getY(y)
+                    || first.isSpecial(x) != second.isSpecial(y)
+                    || first.getArrivalTick(x) != second.getArrivalTick(y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // how long Renderer takes to draw every tile of a big world at once, on
+    // its own and with a ChunkedRenderer. "cold" draws everything from
+    // scratch, and "frame" is a normal frame where one coin came or went,
+    // followed by how many chunks the chunked one drew again for it.
+    // the coins column is the number of walls, bombs and coins on screen
+    private static void runRendering(int entities, String filter) {
+        if (!"serialCold chunkedCold serialFrame chunkedFrame".contains(filter)) {
+            return;
+        }
+        int coinCount = entities / 2;
+        Game game = new Game(new GameConfig(RENDER_COLUMNS, RENDER_ROWS, entities / 4, entities / 4, coinCount,
+            RENDER_TILE_SIZE, RENDER_COLUMNS, RENDER_ROWS, 42).withCoinLimits(
+            Math.max(coinCount, Game.MAX_COINS), 0, 0, CoinField.OLDEST_FIRST));
+        Grid grid = game.getGrid();
+        String params = RENDER_COLUMNS + "x" + RENDER_ROWS;
+        int onScreen = grid.getWallCount() + grid.getBombCount() + game.getCoinCount();
+        // a free tile to drop a coin on and pick it up again, one frame each
+        int coinX = 1;
+        int coinY = 0;
+        while (grid.isOccupied(coinX, coinY)) {
+            coinX++;
+        }
+        int[] frames = {0};
+        int toggleX = coinX;
+
+        for (boolean chunked : new boolean[] {false, true}) {
+            Renderer renderer = new Renderer(game);
+            renderer.setChunked(chunked);
+            String kind = chunked ? "chunked" : "serial";
+            BufferedImage canvas = new BufferedImage(renderer.getWidth(), renderer.getHeight(), BufferedImage.TYPE_INT_RGB);
+            if ((kind + "Cold").contains(filter)) {
+                run(kind + "Cold", params, onScreen, () -> {
+                    renderer.invalidate();
+                    Graphics2D g2d = canvas.createGraphics();
+                    renderer.draw(g2d, null, null);
+                    g2d.dispose();
+                });
+            }
+            if ((kind + "Frame").contains(filter)) {
+                run(kind + "Frame", params, onScreen, () -> {
+                    if (frames[0]++ % 2 == 0) {
+                        grid.addCoin(toggleX, 0, false, CoinField.NONE);
+                    } else {
+                        grid.removeCoins(toggleX, 0);
+                    }
+                    renderer.publish();
+                    Graphics2D g2d = canvas.createGraphics();
+                    renderer.draw(g2d, null, null);
+                    g2d.dispose();
+                });
+                ChunkedRenderer chunks = renderer.getChunkedRenderer();
+                if (chunks != null) {
+                    // only the chunk the coin is in should have been drawn again
+                    System.out.printf("%-12s %-10s %8d   %d of %d chunks redrawn per frame%n",
+                        kind + "Frame", params, onScreen, chunks.getLastRedrawn(), chunks.getLastVisible());
+                }
+            }
+        }
+    }
+
+    // how long the pathfinder takes to answer questions and to keep up with
+    // coins coming and going
+    private static void runPathfinding(Game game, String params, int coins, String filter) {
+        Grid grid = game.getGrid();
+        Pathfinder pathfinder = game.getPathfinder();
+        // work out the field up front, or the updates below have nothing to update
+        pathfinder.rebuild();
+        // random free tiles to ask about and to drop coins on
+        Random rand = new Random(42);
+        int[] xs = new int[1024];
+        int[] ys = new int[1024];
+        for (int i = 0; i < xs.length; i++) {
+            do {
+                xs[i] = rand.nextInt(grid.getColumns());
+                ys[i] = rand.nextInt(grid.getRows());
+            } while (grid.isOccupied(xs[i], ys[i]));
+        }
+        int[] next = {0};
+
+        if ("nextStep".contains(filter)) {
+            run("nextStep", params, coins, () -> {
+                int i = next[0]++ & 1023;
+                sink += pathfinder.nextStep(xs[i], ys[i]);
+            });
+        }
+        if ("astar".contains(filter)) {
+            run("astar", params, coins, () -> {
+                int i = next[0]++ & 1023;
+                int j = (i + 1) & 1023;
+                int[] path = pathfinder.findPath(xs[i], ys[i], xs[j], ys[j]);
+                sink += path == null ? -1 : path.length;
+            });
+        }
+        if ("coinUpdate".contains(filter)) {
+            // one coin appearing and then being picked up again
+            run("coinUpdate", params, coins, () -> {
+                int i = next[0]++ & 1023;
+                if (grid.addCoin(xs[i], ys[i], false, CoinField.NONE)) {
+                    pathfinder.coinAdded(xs[i], ys[i]);
+                    grid.removeCoins(xs[i], ys[i]);
+                    pathfinder.coinRemoved(xs[i], ys[i]);
+                }
+            });
+        }
+        if ("fieldRebuild".contains(filter)) {
+            // what every coin would cost without the incremental updates
+            run("fieldRebuild", params, coins, pathfinder::rebuild);
+        }
+    }
+
+    // adds up the positions of everything on the board, the way drawing and
+    // collision checks walk over the entity arrays
+    private static long scan(Grid grid) {
+        long sum = 0;
+        for (int chunkY = 0; chunkY < grid.getChunkRows(); chunkY++) {
+            for (int chunkX = 0; chunkX < grid.getChunkColumns(); chunkX++) {
+                Chunk chunk = grid.getChunk(chunkX, chunkY);
+                if (chunk == null) {
+                    continue;
+                }
+                Entities layout = chunk.getLayout();
+                for (int i = 0; i < layout.size(); i++) {
+                    sum += layout.getX(i) + layout.getY(i);
+                }
+                Entities coins = chunk.getCoins();
+                for (int i = 0; i < coins.size(); i++) {
+                    sum += coins.getX(i) + coins.getY(i);
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static Game createGame(int columns, int rows, int coinCount) {
+        // make room for all the coins, plus the one collectCoins puts under the
+        // player, and keep them from vanishing halfway through
+        Game game = new Game(new GameConfig(columns, rows).withCoinLimits(
+            Math.max(coinCount, Game.MAX_COINS) + 1, 0, 0, CoinField.OLDEST_FIRST));
+        // spread the extra coins over the board, keeping them off the player's tile.
+        // only one coin fits on a tile, so small boards end up with fewer coins
+        Random rand = new Random(42);
+        for (int i = game.getCoinCount(); i < coinCount; i++) {
+            int coinX = 1 + rand.nextInt(columns - 1);
+            int coinY = rand.nextInt(rows);
+            game.queueCoin(new Coin(coinX, coinY, rand.nextInt(Game.SPECIAL_COIN_ODDS) < Game.SPECIAL_COIN_CHANCE));
+        }
+        // the queued coins are put on the board by the next tick
+        game.step(Game.NONE);
+        return game;
+    }
+
+    private static void run(String name, String params, int coinCount, Operation operation) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round(operation);
+        }
+        double totalNanos = 0;
+        double totalBytes = 0;
+        long totalCalls = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long[] result = round(operation);
+            totalNanos += result[0];
+            totalBytes += result[1];
+            totalCalls += result[2];
+        }
+        System.out.printf(
+            "%-12s %-10s %8d %14.1f %12.1f%n",
+            name, params, coinCount, totalNanos / totalCalls, totalBytes / totalCalls
+        );
+    }
+
+    // calls the operation for about ROUND_NANOS and returns how long that took,
+    // how many bytes were allocated along the way, and how many calls were made
+    private static long[] round(Operation operation) {
+        long calls = 0;
+        long batch = 1;
+        long startBytes = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (long i = 0; i < batch; i++) {
+                operation.run();
+            }
+            calls += batch;
+            // check the clock less and less often so it doesn't dominate fast operations
+            if (batch < 1_000_000) {
+                batch *= 2;
+            }
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+        long bytes = allocatedBytes() - startBytes;
+        return new long[] {elapsed, bytes, calls};
+    }
+
+    // how many bytes the current thread has allocated so far. this is the same
+    // number the JMH gc profiler reports as gc.alloc.rate.norm
+    static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // asking for the allocated bytes allocates a little itself. this is how
+    // much, so it can be taken off when checking for exactly zero
+    private static long measuringBytes() {
+        long start = allocatedBytes();
+        return allocatedBytes() - start;
+    }
+
+}
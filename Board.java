@@ -1,380 +1,295 @@
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
-import java.util.Random;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import javax.swing.*;
 
 public class Board extends JPanel implements ActionListener, KeyListener {
 
-    // controls the delay between each tick in ms
-    private final int DELAY = 25;
-    // controls the size of the board
-    public static final int TILE_SIZE = 60;
-    public static final int ROWS = 15;
-    public static final int COLUMNS = 20;
-    // controls how many damage tiles appear on the board
-    public static final int NUM_BOMBS = 5;
-    // controls how many walls appear on the board
-    public static final int NUM_WALLS = 10;
-    // controls how many coins appear on the board
-    public static final int NUM_COINS = 5;
+    // controls the delay between each tick in ms, one tick of the game
+    static final int DELAY = Game.TICK_MILLIS;
     // suppress serialization warning
     private static final long serialVersionUID = 490905409104883233L;
     
     // keep a reference to the timer object that triggers actionPerformed() in
     // case we need access to it in another method
     private final Timer timer;
-    // objects that appear on the game board
-    private final Player player;
-    private ArrayList<Wall> walls;
-    private ArrayList<Bomb> bombs;
-    private ArrayList<Coin> coins;
-
-    // Two boolean variables that determine win screen text
-    private boolean win = false;
-    private boolean lose = false;
+    // slows the timer right down while nothing is going on, see TickScheduler
+    private final TickScheduler scheduler = new TickScheduler(DELAY * 1_000_000L);
+    // handed to invokeLater() by the spawner thread, made once up front
+    private final Runnable wakeTask = this::wake;
+    // runs the game's ticks and keys, the same way GameCanvas does
+    private final GameSession session;
+    // the game itself and what draws it, from the session
+    private final Game game;
+    private final Renderer renderer;
+    // how evenly the timer is ticking, to compare against GameCanvas
+    private final FrameStats frameStats = new FrameStats(DELAY * 1_000_000L);
+    private long paintedUpdates;
+    // what the board looked like the last time we asked for a repaint, so we
+    // can tell what changed since then
+    private int paintedScore;
+    private int paintedLives;
+    private boolean paintedOver;
+    private long paintedVersion;
+    // reused by countPixels() so painting doesn't make a new Rectangle every time
+    private final Rectangle clipBounds = new Rectangle();
+    // called after the first frame is drawn, or null
+    private Runnable firstFrameListener;
 
     public Board() {
+        this(new Game(GameConfig.fromSystemProperties()));
+    }
+
+    public Board(Game game) {
+        this.game = game;
+        session = new GameSession(game);
+        renderer = session.getRenderer();
+        // a new coin has to go on the board even if the timer is asleep
+        session.setSpawnListener(() -> SwingUtilities.invokeLater(wakeTask));
         // set the game board size
-        setPreferredSize(new Dimension(TILE_SIZE * COLUMNS, TILE_SIZE * ROWS));
+        setPreferredSize(new Dimension(renderer.getWidth(), renderer.getHeight()));
         // set the game board background color
-        setBackground(new Color(232, 232, 232));
+        setBackground(Renderer.BACKGROUND_COLOR);
 
-        // initialize the game state
-        walls = createWalls();
-        bombs = createBombs();
-        player = new Player(walls, bombs);
-        coins = populateCoins();
-
-        // this timer will call the actionPerformed() method every DELAY ms
+        // this timer will call the actionPerformed() method every DELAY ms.
+        // it isn't started until the board is shown in a window
         timer = new Timer(DELAY, this);
-        timer.start();
+    }
 
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
-        executor.scheduleAtFixedRate(newCoin, 0, 2, TimeUnit.SECONDS);
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        // the board is on screen now, so start the game loop and the spawner.
+        // a board that is never shown (like in Benchmarks) never ticks on its own
+        timer.start();
+        session.start();
     }
 
     @Override
     public void actionPerformed(ActionEvent e) {
+        // this method is called by the timer every DELAY ms.
+        // all of the game rules live in Game, so we just pass on the last key
+        // pressed and let it update the state of the game
+        long now = System.nanoTime();
+        frameStats.frame(now);
+        // if the timer slept through some ticks, the game's clock catches up first
+        scheduler.beforeTick(game, now);
+        boolean scrolled = session.tick();
+
         // the game stops everything when the score hits 3000 or the player dies three times
-        if (Player.score > 2999) {
-            timer.stop();
-            win = true;
-            endScreen();
-        } else if (Player.lives == 0) {
+        if (game.isOver()) {
             timer.stop();
-            lose = true;
-            endScreen();
+            frameStats.pause();
         } else {
-            // this method is called by the timer every DELAY ms.
-            // use this space to update the state of your game or animation
-            // before the graphics are redrawn.
+            scheduleNextTick();
+        }
 
-            // removes coins and moves the player if they encounter a bomb tile
-            // or prevents the player from disappearing off the board/into a wall
-            player.tick(walls, bombs);
+        // calling repaint() will trigger paintComponent() to run again,
+        // which will refresh/redraw the graphics. we only ask for the parts
+        // of the board that actually changed this tick
+        repaintChanges(scrolled);
+    }
 
-            // give the player points for collecting coins
-            collectCoins();
+    // sets the timer for the next tick. while something is moving that's
+    // every DELAY ms, otherwise the timer sleeps until a coin runs out of
+    // time, or until wake() is called
+    private void scheduleNextTick() {
+        // a board that isn't on screen (like in Benchmarks) has no timer running
+        if (!isDisplayable()) {
+            return;
+        }
+        boolean wasSleeping = scheduler.isSleeping();
+        long wait = scheduler.afterTick(game, session.isBusy());
+        if (!scheduler.isSleeping()) {
+            // back to every tick, if it wasn't already
+            if (wasSleeping || timer.getDelay() != DELAY) {
+                timer.setInitialDelay(DELAY);
+                timer.setDelay(DELAY);
+                timer.restart();
+            }
+            return;
+        }
+        // the gap while asleep isn't a late frame
+        frameStats.pause();
+        if (wait == TickScheduler.FOREVER) {
+            timer.stop();
+            return;
+        }
+        int delay = (int) Math.min(Integer.MAX_VALUE, wait / 1_000_000);
+        timer.setInitialDelay(delay);
+        timer.setDelay(delay);
+        timer.restart();
+    }
+
+    // something happened that needs a tick soon, like a key press or a new
+    // coin. if the timer is asleep, it fires on the next tick instead
+    private void wake() {
+        if (!isDisplayable() || game.isOver()) {
+            return;
+        }
+        long wait = scheduler.wake(System.nanoTime());
+        if (wait < 0) {
+            return;
+        }
+        // round up, so the tick never lands before the one it stands in for
+        timer.setInitialDelay((int) ((wait + 999_999) / 1_000_000));
+        timer.setDelay(DELAY);
+        timer.restart();
+    }
 
-            // calling repaint() will trigger paintComponent() to run again,
-            // which will refresh/redraw the graphics.
+    private void repaintChanges(boolean scrolled) {
+        // the round started or ended, the walls and bombs changed or the view
+        // scrolled, so everything needs redrawing
+        if (scrolled || game.isOver() != paintedOver || game.getLayoutVersion() != paintedVersion) {
+            paintedOver = game.isOver();
+            paintedVersion = game.getLayoutVersion();
+            paintedScore = game.getScore();
+            paintedLives = game.getLives();
             repaint();
+            return;
+        }
+        if (game.isOver()) {
+            return;
+        }
+
+        // the tiles the player moved between and where coins appeared or were
+        // picked up, as long as they are on screen
+        Camera camera = renderer.getCamera();
+        int tileSize = renderer.getTileSize();
+        DirtyTiles dirty = game.getDirtyTiles();
+        for (int i = 0; i < dirty.size(); i++) {
+            int x = dirty.getX(i);
+            int y = dirty.getY(i);
+            if (camera.contains(x, y)) {
+                repaint((x - camera.getX()) * tileSize, (y - camera.getY()) * tileSize, tileSize, tileSize);
+            }
+        }
+
+        // the hint arrow on the player can point a new way even if the player
+        // didn't move, like when a closer coin shows up
+        if (renderer.isShowingHint()) {
+            Point pos = game.getPlayer().getPos();
+            if (camera.contains(pos.x, pos.y)) {
+                repaint((pos.x - camera.getX()) * tileSize, (pos.y - camera.getY()) * tileSize, tileSize, tileSize);
+            }
+        }
+
+        // the score text sits on the bottom row of tiles
+        if (game.getScore() != paintedScore || game.getLives() != paintedLives) {
+            paintedScore = game.getScore();
+            paintedLives = game.getLives();
+            repaint(0, renderer.getHeight() - tileSize, renderer.getWidth(), tileSize);
+        }
+
+        // the overlay's numbers change once a second
+        Performance performance = session.getPerformance();
+        if (renderer.getOverlay() != null && performance.getUpdates() != paintedUpdates) {
+            paintedUpdates = performance.getUpdates();
+            repaint(0, 0, Hud.OVERLAY_WIDTH, Hud.OVERLAY_HEIGHT);
         }
     }
 
-    Runnable newCoin = () -> {
-        Random rand = new Random();
-        int coinX = rand.nextInt(COLUMNS);
-        int coinY = rand.nextInt(ROWS);
-        coins.add(new Coin(coinX, coinY));
-    };
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        // the board is no longer on screen, so stop the game loop and the
+        // spawner thread for good
+        timer.stop();
+        session.shutdown();
+    }
 
     @Override
     public void paintComponent(Graphics g) {
-        super.paintComponent(g);
+        // the renderer always covers the whole board, so there is no need to
+        // let super.paintComponent() clear it first.
         // when calling g.drawImage() we can use "this" for the ImageObserver 
         // because Component implements the ImageObserver interface, and JPanel 
         // extends from Component. So "this" Board instance, as a Component, can 
         // react to imageUpdate() events triggered by g.drawImage()
 
-        // draw our graphics.
-        drawBackground(g);
-        if (!win && !lose) {
-            drawScore(g);
-            for (Coin coin : coins) {
-                coin.draw(g, this);
-            }
-            player.draw(g, this);
-
-            // draws walls
-            for (Wall wall : walls) {
-                wall.draw(g, this);
-            }
+        Performance performance = session.getPerformance();
+        long start = performance.start();
+        GameEvents.Paint event = GameEvents.beginPaint();
 
-            // draws bombs
-            for (Bomb bomb : bombs) {
-                bomb.draw(g, this);
-            }
-        } else {
-            drawEndText(g);
-        }
+        // draw our graphics.
+        renderer.draw(g, getGraphicsConfiguration(), this);
 
         // this smooths out animations on some systems
         Toolkit.getDefaultToolkit().sync();
-    }
+        session.getInputQueue().frameShown(System.nanoTime());
 
-    @Override
-    public void keyTyped(KeyEvent e) {
-        // this is not used but must be defined as part of the KeyListener interface
-    }
+        long pixels = countPixels(g);
+        GameEvents.endPaint(event, pixels, game);
+        performance.paintEnd(start, pixels);
 
-    @Override
-    public void keyPressed(KeyEvent e) {
-        // react to key down events
-        int key = e.getKeyCode();
-        if (key == KeyEvent.VK_UP && player.canMove(0, -1, walls)) {
-            player.keyPressed(e);
-        }
-        if (key == KeyEvent.VK_RIGHT && player.canMove(1, 0, walls)) {
-            player.keyPressed(e);
-        }
-        if (key == KeyEvent.VK_DOWN && player.canMove(0, 1, walls)) {
-            player.keyPressed(e);
-        }
-        if (key == KeyEvent.VK_LEFT && player.canMove(-1, 0, walls)) {
-            player.keyPressed(e);
-        }
-        if (key == KeyEvent.VK_Y) {
-            if (win || lose) {
-                restart();
-            }
-        }
-        if (key == KeyEvent.VK_N && player.canMove(-1, 0, walls)) {
-            if (win || lose) {
-                System.exit(0);
-            }
+        if (firstFrameListener != null) {
+            firstFrameListener.run();
+            firstFrameListener = null;
         }
     }
 
-    @Override
-    public void keyReleased(KeyEvent e) {
-        // react to key up events
+    // returns how many pixels this paint redrew
+    private long countPixels(Graphics g) {
+        // the clip is the part of the board Swing asked us to redraw
+        // if there is no clip the rectangle is left alone, so start with the whole board
+        clipBounds.setBounds(0, 0, getWidth(), getHeight());
+        g.getClipBounds(clipBounds);
+        return (long) clipBounds.width * clipBounds.height;
     }
 
-    private void drawBackground(Graphics g) {
-        if (!win && !lose) {
-            // draw a checkered background
-            g.setColor(new Color(214, 214, 214));
-            for (int row = 0; row < ROWS; row++) {
-                for (int col = 0; col < COLUMNS; col++) {
-                    // only color every other tile
-                    if ((row + col) % 2 == 1) {
-                        // draw a square tile at the current row/column position
-                        g.fillRect(
-                        col * TILE_SIZE, 
-                        row * TILE_SIZE, 
-                        TILE_SIZE, 
-                        TILE_SIZE
-                    );
-                }
-            }   
-            } 
-        } else {
-            g.setColor(new Color(255, 255, 255));
-        }
+    public Game getGame() {
+        return game;
     }
 
-    private void drawScore(Graphics g) {
-        // set the text to be displayed
-        String text = "Gold - " + player.getScore() + "   Lives - " + Player.lives;
-        // we need to cast the Graphics to Graphics2D to draw nicer text
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(
-            RenderingHints.KEY_TEXT_ANTIALIASING,
-            RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        g2d.setRenderingHint(
-            RenderingHints.KEY_RENDERING,
-            RenderingHints.VALUE_RENDER_QUALITY);
-        g2d.setRenderingHint(
-            RenderingHints.KEY_FRACTIONALMETRICS,
-            RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-        // set the text color and font
-        g2d.setColor(new Color(30, 175, 155));
-        g2d.setFont(new Font("Lato", Font.BOLD, 25));
-        // draw the score in the bottom center of the screen
-        // https://stackoverflow.com/a/27740330/4655368
-        FontMetrics metrics = g2d.getFontMetrics(g2d.getFont());
-        // the text will be contained within this rectangle.
-        // here I've sized it to be the entire bottom row of board tiles
-        Rectangle rect = new Rectangle(0, TILE_SIZE * (ROWS - 1), TILE_SIZE * COLUMNS, TILE_SIZE);
-        // determine the x coordinate for the text
-        int x = rect.x + (rect.width - metrics.stringWidth(text)) / 2;
-        // determine the y coordinate for the text
-        // (note we add the ascent, as in java 2d 0 is top of the screen)
-        int y = rect.y + ((rect.height - metrics.getHeight()) / 2) + metrics.getAscent();
-        // draw the string
-        g2d.drawString(text, x, y);
+    public FrameStats getFrameStats() {
+        return frameStats;
     }
 
-    private void drawEndText(Graphics g) {
-        String text;
-        // set the text to be displayed
-        if (win) {
-            text = "  Congratulations, you won!\n"
-            + "Would you like to play again?\n"
-            + "        (Press Y or N)";
-        } else {
-            text = "  Sorry, you ran out of lives\n"
-            + "Would you like to play again?\n"
-            + "            (Press Y or N)";
-        }
-        // we need to cast the Graphics to Graphics2D to draw nicer text
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(
-            RenderingHints.KEY_TEXT_ANTIALIASING,
-            RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        g2d.setRenderingHint(
-            RenderingHints.KEY_RENDERING,
-            RenderingHints.VALUE_RENDER_QUALITY);
-        g2d.setRenderingHint(
-            RenderingHints.KEY_FRACTIONALMETRICS,
-            RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-        // set the text color and font
-        g2d.setColor(new Color(30, 175, 155));
-        g2d.setFont(new Font("Lato", Font.BOLD, 42));
-        // draw the score in the bottom center of the screen
-        // https://stackoverflow.com/a/27740330/4655368
-        FontMetrics metrics = g2d.getFontMetrics(g2d.getFont());
-        // the text will be contained within this rectangle.
-        // here I've sized it to be the entire bottom row of board tiles
-        Rectangle rect = new Rectangle(0, TILE_SIZE * (ROWS - 1), TILE_SIZE * COLUMNS, TILE_SIZE);
-        // determine the x coordinate for the text
-        int x = 300;
-        // determine the y coordinate for the text
-        // (note we add the ascent, as in java 2d 0 is top of the screen)
-        int y = 75;
-        // draw the string
-        String[] lines = text.split("\n");
-        for (int i = 0; i < lines.length; i++) {
-            g2d.drawString(lines[i], x, y + i * metrics.getHeight());
-        }
+    public Performance getPerformance() {
+        return session.getPerformance();
     }
 
-    private ArrayList<Bomb> createBombs() {
-        ArrayList<Bomb> bombList = new ArrayList<>();
-        Random rand = new Random();
-
-        // create the given number of bomb tiles in random positions on the board.
-        // note that there is not check here to prevent two bomb tiles from occupying the same
-        // spot, but there is one to prevent bomb tiles from spawning in the same spot as the player
-        for (int i = 0; i < NUM_BOMBS; i++) {
-            int bombX = rand.nextInt(COLUMNS);
-            int bombY = rand.nextInt(ROWS);
-            if (bombX == 0 && bombY == 0) {
-                boolean bombInPlayerSpot = true;
-                while (bombInPlayerSpot) {
-                    bombX = rand.nextInt(COLUMNS);
-                    bombY = rand.nextInt(ROWS);
-                    if (bombX != 0 || bombY != 0) {
-                        bombInPlayerSpot = false;
-                    }
-                }
-            } else {
-                bombList.add(new Bomb(bombX, bombY));
-            }
-        }
-
-        return bombList;
+    public InputQueue getInputQueue() {
+        return session.getInputQueue();
     }
 
-    private ArrayList<Wall> createWalls() {
-        ArrayList<Wall> wallList = new ArrayList<>();
-        Random rand = new Random();
-
-        // create the given number of walls in random positions on the board.
-        // note that there is not check here to prevent two walls from occupying the same
-        // spot, nor to prevent walls from spawning in the same spot as the player
-        for (int i = 0; i < NUM_WALLS; i++) {
-            int wallX = rand.nextInt(COLUMNS);
-            int wallY = rand.nextInt(ROWS);
-            if (wallX == 0 && wallY == 0) {
-                boolean wallInPlayerSpot = true;
-                while (wallInPlayerSpot) {
-                    wallX = rand.nextInt(COLUMNS);
-                    wallY = rand.nextInt(ROWS);
-                    if (wallX != 0 || wallY != 0) {
-                        wallInPlayerSpot = false;
-                    }
-                }
-            } else {
-                wallList.add(new Wall(wallX, wallY));
-            }
-        }
-
-        return wallList;
+    public void setFirstFrameListener(Runnable firstFrameListener) {
+        this.firstFrameListener = firstFrameListener;
     }
 
-    private ArrayList<Coin> populateCoins() {
-        ArrayList<Coin> coinList = new ArrayList<>();
-        Random rand = new Random();
-
-        // create the given number of coins in random positions on the board.
-        // note that there is not check here to prevent two coins from occupying the same
-        // spot, nor to prevent coins from spawning in the same spot as the player
-        for (int i = 0; i < NUM_COINS; i++) {
-            int coinX = rand.nextInt(COLUMNS);
-            int coinY = rand.nextInt(ROWS);
-            coinList.add(new Coin(coinX, coinY));
-        }
-
-        return coinList;
+    @Override
+    public void keyTyped(KeyEvent e) {
+        // this is not used but must be defined as part of the KeyListener interface
     }
 
-    private void collectCoins() {
-        // allow player to pickup coins
-        ArrayList<Coin> collectedCoins = new ArrayList<>();
-        for (Coin coin : coins) {
-            // if the player is on the same tile as a coin, collect it
-            if (player.getPos().equals(coin.getPos())) {
-                // give the player some points for picking this up
-                if (coin.getSpecial()) {
-                    player.addScore(300);
-                } else {
-                    player.addScore(50);
-                }
-                collectedCoins.add(coin);
-            }
+    @Override
+    public void keyPressed(KeyEvent e) {
+        // react to key down events. every key needs a tick to show up, so
+        // wake the timer if it's asleep
+        wake();
+        if (session.keyPressed(e.getKeyCode())) {
+            repaint();
+        }
+        if (session.restartIfRequested()) {
+            restartTimer();
         }
-        // remove collected coins from the board
-        coins.removeAll(collectedCoins);
     }
 
-    public void endScreen() {
-        walls.clear();
-        bombs.clear();
-        coins.clear();
-        repaint();
+    @Override
+    public void keyReleased(KeyEvent e) {
+        // react to key up events
     }
 
     public void restart() {
-        win = false;
-        lose = false;
-        Player.score = 0;
-        Player.lives = 3;
-        // set the game board background color
-        setBackground(new Color(232, 232, 232));
-
-        // initialize the game state
-        walls = createWalls();
-        bombs = createBombs();
-        coins = populateCoins();
+        session.restart();
+        restartTimer();
+    }
 
+    private void restartTimer() {
         // this timer will call the actionPerformed() method every DELAY ms
-        timer.start();
+        scheduler.reset();
+        timer.setInitialDelay(DELAY);
+        timer.setDelay(DELAY);
+        timer.restart();
     }
 
 }
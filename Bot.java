@@ -0,0 +1,14 @@
+import java.awt.Point;
+
+// plays the game by itself: every tick it walks one step towards the nearest
+// coin it can reach, going around walls and bombs. turn it on with the A key
+// or by starting the game with -Dgoblin.autoplay=true
+public class Bot implements Policy {
+
+    @Override
+    public int nextInput(Game game) {
+        Point pos = game.getPlayer().getPos();
+        return game.getPathfinder().nextStep(pos.x, pos.y);
+    }
+
+}
@@ -0,0 +1,62 @@
+import java.awt.Point;
+
+// decides which part of the world is on screen. it keeps the player in the
+// middle of the screen, except near the edges of the world where it stops
+// so we never show anything past the edge
+public class Camera {
+
+    // how many tiles fit on screen
+    private final int columns;
+    private final int rows;
+    // size of the whole world in tiles
+    private final int worldColumns;
+    private final int worldRows;
+    // the tile shown in the top left corner of the screen
+    private int x;
+    private int y;
+
+    public Camera(int columns, int rows, int worldColumns, int worldRows) {
+        this.columns = Math.min(columns, worldColumns);
+        this.rows = Math.min(rows, worldRows);
+        this.worldColumns = worldColumns;
+        this.worldRows = worldRows;
+    }
+
+    // moves the camera so the target is in view. returns true if it moved
+    public boolean follow(Point target) {
+        int newX = clamp(target.x - columns / 2, worldColumns - columns);
+        int newY = clamp(target.y - rows / 2, worldRows - rows);
+        if (newX == x && newY == y) {
+            return false;
+        }
+        x = newX;
+        y = newY;
+        return true;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    // whether the given tile is on screen
+    public boolean contains(int tileX, int tileY) {
+        return tileX >= x && tileX < x + columns && tileY >= y && tileY < y + rows;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+}
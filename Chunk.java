@@ -0,0 +1,162 @@
+import java.util.Arrays;
+
+// one square piece of the board. the Grid only creates a chunk once something
+// is placed inside it, so empty parts of a huge world don't take up any memory,
+// and drawing only has to look at the chunks that are on screen
+public class Chunk {
+
+    // chunks are SIZE x SIZE tiles. this has to be a power of two
+    public static final int SIZE = 32;
+    public static final int SHIFT = 5;
+    public static final int MASK = SIZE - 1;
+
+    // coinIndexes never needs more room than one entry per cell
+    private static final int CELLS = SIZE * SIZE;
+
+    // what occupies each cell of this chunk, see Grid
+    final byte[] flags = new byte[SIZE * SIZE];
+    // the CoinField slot of each coin, in the same order as the coins list,
+    // so a chunk only pays for the coins it has room for instead of a slot
+    // for every cell
+    private int[] coinSlots;
+    // where each coin is in the coins list, looked up by its cell, so picking
+    // a coin up doesn't have to go through the list. it's a small hash table
+    // like Placement's, sized to the coins the chunk has room for. each entry
+    // is a coin's index plus one, and 0 is empty, so it's a short per entry
+    // and the cell is checked against the coin's own position
+    private short[] coinIndexes;
+    // the things inside this chunk, for drawing. walls and bombs never move
+    // during a round so they are kept apart from the coins, which come and go
+    private final Entities layout = new Entities();
+    private final Entities coins;
+
+    // coinCapacity is how many coins the chunk has room for before its lists
+    // have to grow, see Grid
+    Chunk(int coinCapacity) {
+        coins = new Entities(coinCapacity);
+        coinSlots = new int[coinCapacity];
+        coinIndexes = newTable(coinCapacity);
+    }
+
+    // index of the cell for the given board position inside this chunk
+    static int cell(int x, int y) {
+        return ((y & MASK) << SHIFT) | (x & MASK);
+    }
+
+    // the walls and bombs in this chunk
+    public Entities getLayout() {
+        return layout;
+    }
+
+    public Entities getCoins() {
+        return coins;
+    }
+
+    // adds a coin to the list and remembers its CoinField slot
+    void addCoin(int x, int y, byte flag, byte sprite, int slot) {
+        int index = coins.add(x, y, flag, sprite);
+        if (index == coinSlots.length) {
+            // the same growth as Entities, so the slots always fit the coins
+            coinSlots = Arrays.copyOf(coinSlots, Math.max(16, index * 2));
+        }
+        coinSlots[index] = slot;
+        // keep the table at most half full so lookups stay short
+        if (coins.size() * 2 > coinIndexes.length && coinIndexes.length < CELLS) {
+            coinIndexes = newTable(coinSlots.length);
+            for (int i = 0; i < index; i++) {
+                insert(cell(coins.getX(i), coins.getY(i)), i);
+            }
+        }
+        insert(cell(x, y), index);
+    }
+
+    // returns the CoinField slot of the coin on the given cell, or CoinField.NONE
+    int getCoinSlot(int cell) {
+        int entry = find(cell);
+        return entry < 0 ? CoinField.NONE : coinSlots[coinIndexes[entry] - 1];
+    }
+
+    // removes the coin on the given cell and returns its CoinField slot, or
+    // CoinField.NONE if there isn't one. the last coin in the list is moved
+    // into its place like Entities.remove() does
+    int removeCoin(int cell) {
+        int entry = find(cell);
+        if (entry < 0) {
+            return CoinField.NONE;
+        }
+        int index = coinIndexes[entry] - 1;
+        int slot = coinSlots[index];
+        delete(entry);
+        int last = coins.size() - 1;
+        int moved = index < last ? find(cell(coins.getX(last), coins.getY(last))) : -1;
+        coins.remove(index);
+        coinSlots[index] = coinSlots[last];
+        if (moved >= 0) {
+            coinIndexes[moved] = (short) (index + 1);
+        }
+        return slot;
+    }
+
+    // an empty table with room for the given number of coins
+    private static short[] newTable(int coinCapacity) {
+        int size = 16;
+        while (size < coinCapacity * 2 && size < CELLS) {
+            size <<= 1;
+        }
+        return new short[size];
+    }
+
+    // the entry in coinIndexes for the given cell, or -1 if it has no coin
+    private int find(int cell) {
+        int mask = coinIndexes.length - 1;
+        for (int i = hash(cell) & mask; coinIndexes[i] != 0; i = (i + 1) & mask) {
+            if (cellOf(coinIndexes[i]) == cell) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int cell, int index) {
+        int mask = coinIndexes.length - 1;
+        int i = hash(cell) & mask;
+        while (coinIndexes[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        coinIndexes[i] = (short) (index + 1);
+    }
+
+    // empties an entry. the entries after it that were pushed along past it
+    // are moved back, so find() never stops at the gap too early
+    private void delete(int entry) {
+        if (coinIndexes.length == CELLS) {
+            // every entry is in its home, see hash(), so nothing needs moving
+            coinIndexes[entry] = 0;
+            return;
+        }
+        int mask = coinIndexes.length - 1;
+        int gap = entry;
+        for (int i = (entry + 1) & mask; coinIndexes[i] != 0; i = (i + 1) & mask) {
+            int home = hash(cellOf(coinIndexes[i])) & mask;
+            // the entry can go in the gap if the gap is between its home and where it is
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                coinIndexes[gap] = coinIndexes[i];
+                gap = i;
+            }
+        }
+        coinIndexes[gap] = 0;
+    }
+
+    // the cell of the coin an entry points at
+    private int cellOf(short entry) {
+        return cell(coins.getX(entry - 1), coins.getY(entry - 1));
+    }
+
+    // mixes the cell's bits without ever giving two cells the same number, so
+    // a table with an entry for every cell has no collisions at all
+    private static int hash(int cell) {
+        int h = (cell * 0x9E5) & (CELLS - 1);
+        return h ^ (h >>> SHIFT);
+    }
+
+}
@@ -0,0 +1,240 @@
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// draws the floor, walls, bombs and coins for Renderer when a lot of the
+// world is on screen at once (a small tile size with a big view). the view is
+// split into square chunks of tiles, each with its own image holding
+// everything in that chunk. a chunk's image is only drawn again when
+// something in it changed, and the chunks that need it are drawn at the same
+// time on the fork/join pool. the frame itself is then just one copy per
+// chunk.
+//
+// the chunks are lined up with the world rather than the screen, and the
+// render state holds everything in a chunk even when only part of it is in
+// view, so when the camera scrolls the images stay good and only the chunks
+// coming into view are drawn. Renderer uses this when started with
+// -Dgoblin.chunkedRender=true
+public class ChunkedRenderer {
+
+    // roughly how many pixels wide each chunk's image is
+    private static final int CHUNK_PIXELS = 256;
+    // how many chunks out of view are kept around before they are thrown away,
+    // as a multiple of the number in view
+    private static final int CACHE_FACTOR = 2;
+
+    // one chunk's image and what it was drawn with
+    private static class CachedChunk {
+        final int chunkX;
+        final int chunkY;
+        BufferedImage image;
+        // the walls, bombs and coins in this chunk this frame
+        final Entities entities = new Entities();
+        // a fingerprint of what's in the chunk, which doesn't depend on the
+        // order the things are listed in, and how many there are. if neither
+        // changed since the image was drawn, the image is still good
+        long hash;
+        int count;
+        long drawnHash;
+        int drawnCount = -1;
+        // the last frame the chunk was in view
+        long lastUsed;
+
+        CachedChunk(int chunkX, int chunkY) {
+            this.chunkX = chunkX;
+            this.chunkY = chunkY;
+        }
+    }
+
+    private final int tileSize;
+    // how many tiles wide and high a chunk is
+    private final int chunkTiles;
+    private final int columns;
+    private final int rows;
+    private final ForkJoinPool pool;
+    // every chunk that has an image, by its position
+    private final Map<Long, CachedChunk> cache = new HashMap<>();
+    // the chunks in view this frame, and the ones among them to draw again.
+    // reused every frame
+    private final List<CachedChunk> visible = new ArrayList<>();
+    private final List<CachedChunk> dirty = new ArrayList<>();
+    private long frame;
+    // how many chunk images the last frame drew again and how many it
+    // copied to the screen, which Benchmarks prints
+    private int lastRedrawn;
+    private int lastVisible;
+
+    public ChunkedRenderer(int tileSize, int viewColumns, int viewRows) {
+        this(tileSize, viewColumns, viewRows, ForkJoinPool.commonPool());
+    }
+
+    public ChunkedRenderer(int tileSize, int viewColumns, int viewRows, ForkJoinPool pool) {
+        this.tileSize = tileSize;
+        chunkTiles = Math.max(1, CHUNK_PIXELS / tileSize);
+        columns = viewColumns;
+        rows = viewRows;
+        this.pool = pool;
+    }
+
+    // draws the floor, walls, bombs and coins of the state, in screen pixels
+    public void draw(Graphics g, RenderState state, GraphicsConfiguration config, ImageObserver observer) {
+        frame++;
+        int cameraX = state.getCameraX();
+        int cameraY = state.getCameraY();
+        int firstChunkX = cameraX / chunkTiles;
+        int firstChunkY = cameraY / chunkTiles;
+        int lastChunkX = (cameraX + columns - 1) / chunkTiles;
+        int lastChunkY = (cameraY + rows - 1) / chunkTiles;
+        int chunksWide = lastChunkX - firstChunkX + 1;
+
+        // find the chunks in view and empty them out
+        visible.clear();
+        for (int chunkY = firstChunkY; chunkY <= lastChunkY; chunkY++) {
+            for (int chunkX = firstChunkX; chunkX <= lastChunkX; chunkX++) {
+                long key = ((long) chunkY << 32) | chunkX;
+                CachedChunk chunk = cache.get(key);
+                if (chunk == null) {
+                    chunk = new CachedChunk(chunkX, chunkY);
+                    cache.put(key, chunk);
+                }
+                chunk.entities.clear();
+                chunk.hash = 0;
+                chunk.count = 0;
+                chunk.lastUsed = frame;
+                visible.add(chunk);
+            }
+        }
+
+        // sort everything into its chunk. the state only has what's in the
+        // chunks the camera can see, so everything lands in one of them
+        sortIntoChunks(state.getLayout(), firstChunkX, firstChunkY, chunksWide);
+        sortIntoChunks(state.getCoins(), firstChunkX, firstChunkY, chunksWide);
+
+        // draw the chunks that changed, all at once
+        dirty.clear();
+        for (CachedChunk chunk : visible) {
+            if (chunk.image == null || chunk.hash != chunk.drawnHash || chunk.count != chunk.drawnCount) {
+                dirty.add(chunk);
+            }
+        }
+        lastRedrawn = dirty.size();
+        lastVisible = visible.size();
+        if (dirty.size() == 1) {
+            renderChunk(dirty.get(0), config, observer);
+        } else if (!dirty.isEmpty()) {
+            pool.submit(() -> dirty.parallelStream().forEach(chunk -> renderChunk(chunk, config, observer))).join();
+        }
+
+        // and copy them onto the screen
+        for (CachedChunk chunk : visible) {
+            g.drawImage(
+                chunk.image,
+                (chunk.chunkX * chunkTiles - cameraX) * tileSize,
+                (chunk.chunkY * chunkTiles - cameraY) * tileSize,
+                observer
+            );
+        }
+
+        // forget chunks that have been out of view the longest once there
+        // are a lot of them, like after scrolling across a big world
+        if (cache.size() > CACHE_FACTOR * visible.size()) {
+            Iterator<CachedChunk> chunks = cache.values().iterator();
+            while (chunks.hasNext()) {
+                if (chunks.next().lastUsed != frame) {
+                    chunks.remove();
+                }
+            }
+        }
+    }
+
+    private void sortIntoChunks(Entities entities, int firstChunkX, int firstChunkY, int chunksWide) {
+        for (int i = 0; i < entities.size(); i++) {
+            int x = entities.getX(i);
+            int y = entities.getY(i);
+            byte sprite = entities.getSprite(i);
+            int index = (y / chunkTiles - firstChunkY) * chunksWide + (x / chunkTiles - firstChunkX);
+            CachedChunk chunk = visible.get(index);
+            chunk.entities.add(x, y, entities.getFlags(i), sprite);
+            chunk.hash += fingerprint(x, y, sprite);
+            chunk.count++;
+        }
+    }
+
+    // mixes the bits of an entry so that adding the fingerprints of a chunk's
+    // entries up gives a different total for different contents
+    private static long fingerprint(int x, int y, byte sprite) {
+        long value = ((long) x << 32) ^ ((long) y << 8) ^ sprite;
+        value *= 0x9E3779B97F4A7C15L;
+        value ^= value >>> 29;
+        value *= 0xBF58476D1CE4E5B9L;
+        return value ^ (value >>> 32);
+    }
+
+    // draws one chunk into its image. runs on the pool, each chunk on its own
+    private void renderChunk(CachedChunk chunk, GraphicsConfiguration config, ImageObserver observer) {
+        int pixels = chunkTiles * tileSize;
+        if (chunk.image == null) {
+            chunk.image = Sprites.createImage(pixels, pixels, Transparency.OPAQUE, config);
+        }
+        Graphics2D g2d = chunk.image.createGraphics();
+        g2d.setColor(Renderer.BACKGROUND_COLOR);
+        g2d.fillRect(0, 0, pixels, pixels);
+
+        // the same checkered floor as Renderer, following the world tiles
+        int firstX = chunk.chunkX * chunkTiles;
+        int firstY = chunk.chunkY * chunkTiles;
+        g2d.setColor(Renderer.TILE_COLOR);
+        for (int row = 0; row < chunkTiles; row++) {
+            for (int col = 0; col < chunkTiles; col++) {
+                if ((firstY + row + firstX + col) % 2 == 1) {
+                    g2d.fillRect(col * tileSize, row * tileSize, tileSize, tileSize);
+                }
+            }
+        }
+
+        // walls and bombs were sorted in before coins, so coins end up on top
+        // just like in Renderer
+        g2d.translate(-firstX * tileSize, -firstY * tileSize);
+        Entities entities = chunk.entities;
+        for (int i = 0; i < entities.size(); i++) {
+            g2d.drawImage(
+                Sprites.get(entities.getSprite(i), tileSize),
+                entities.getX(i) * tileSize,
+                entities.getY(i) * tileSize,
+                observer
+            );
+        }
+        g2d.dispose();
+        chunk.drawnHash = chunk.hash;
+        chunk.drawnCount = chunk.count;
+    }
+
+    // throws every image away, so the next frame draws everything again
+    public void invalidate() {
+        cache.clear();
+    }
+
+    // how many tiles wide and high a chunk is, so the render state can hold
+    // whole chunks
+    public int getChunkTiles() {
+        return chunkTiles;
+    }
+
+    public int getLastRedrawn() {
+        return lastRedrawn;
+    }
+
+    public int getLastVisible() {
+        return lastVisible;
+    }
+
+}
@@ -1,77 +1,27 @@
-import java.awt.Graphics;
 import java.awt.Point;
-import java.awt.image.BufferedImage;
-import java.awt.image.ImageObserver;
-import java.io.File;
-import java.io.IOException;
-import java.util.Random;
-import javax.imageio.ImageIO;
 
+// a coin that hasn't been put on the board yet, see Game.queueCoin(). once it
+// is on the board the Grid only keeps its position and kind, not this object
 public class Coin {
     
-    // image that represents the coin's position on the board
-    private BufferedImage image;
     // current position of the coin on the board grid
     private final Point pos;
 
+    // special coins are worth more. the game decides which coins are special
     private final boolean special;
 
-    Random rand = new Random();
-
-    public Coin(int x, int y) {
-        int c = rand.nextInt(11);
-        if (c > 1) {
-            // load the assets
-            loadImage();
-            special = false;
-        } else {
-            // Loads special assets
-            loadSpecialImage();
-            special = true;
-        }
+    public Coin(int x, int y, boolean special) {
+        this.special = special;
 
         // initialize the state
         pos = new Point(x, y);
     }
 
-    private void loadImage() {
-        try {
-            // you can use just the filename if the image file is in your
-            // project folder, otherwise you need to provide the file path.
-            image = ImageIO.read(new File("images/coin.png"));
-        } catch (IOException exc) {
-            System.out.println("Error opening image file: " + exc.getMessage());
-        }
-    }
-
-    private void loadSpecialImage(){
-        try {
-            // you can use just the filename if the image file is in your
-            // project folder, otherwise you need to provide the file path.
-            image = ImageIO.read(new File("images/special coin.png"));
-        } catch (IOException exc) {
-            System.out.println("Error opening image file: " + exc.getMessage());
-        }
-    }
-
-    public void draw(Graphics g, ImageObserver observer) {
-        // with the Point class, note that pos.getX() returns a double, but 
-        // pos.x reliably returns an int. https://stackoverflow.com/a/30220114/4655368
-        // this is also where we translate board grid position into a canvas pixel
-        // position by multiplying by the tile size.
-        g.drawImage(
-            image, 
-            pos.x * Board.TILE_SIZE, 
-            pos.y * Board.TILE_SIZE, 
-            observer
-        );
-    }
-
     public Point getPos() {
         return pos;
     }
 
-    public Boolean getSpecial() {
+    public boolean getSpecial() {
         return special;
     }
 
@@ -0,0 +1,214 @@
+import java.util.Arrays;
+
+// keeps track of how long every coin on the board has been there. it has room
+// for a fixed number of coins, so a game left running for hours doesn't keep
+// piling up coins (and the memory, drawing and collision time that go with
+// them). each coin also has a time to live, and special coins can have a
+// different one from normal coins.
+//
+// the coins are kept in slots that are reused once a coin is gone. normal and
+// special coins each go in their own list, oldest first. since every coin of
+// one kind lives equally long, the first coin of each list is always the next
+// one of its kind to expire, so checking for expired coins and picking a coin
+// to make room are both constant time
+public class CoinField {
+
+    // which coin makes room when the field is full and a new one arrives
+    public static final int OLDEST_FIRST = 0;
+    public static final int NON_SPECIAL_FIRST = 1;
+
+    // returned when there is no such coin
+    public static final int NONE = -1;
+
+    // the two lists
+    private static final int NORMAL = 0;
+    private static final int SPECIAL = 1;
+
+    private final int capacity;
+    // how many ticks a coin of each kind stays on the board, or 0 for forever
+    private final long[] timeToLive = new long[2];
+    private final int evictionPolicy;
+    // one entry per slot
+    private final int[] xs;
+    private final int[] ys;
+    private final byte[] kinds;
+    // the tick the coin in the slot arrived on, and the tick it expires on
+    private final long[] arrivals;
+    private final long[] expires;
+    // when the coin arrived compared to the others, to find the oldest one
+    private final long[] order;
+    // the lists, linked through the slots in both directions so a coin that
+    // is picked up can be taken out of the middle
+    private final int[] previous;
+    private final int[] next;
+    private final int[] first = {NONE, NONE};
+    private final int[] last = {NONE, NONE};
+    // slots that are not being used right now
+    private final int[] free;
+    private int freeCount;
+    private long added;
+
+    public CoinField(int capacity, long coinTimeToLive, long specialCoinTimeToLive, int evictionPolicy) {
+        this.capacity = capacity;
+        timeToLive[NORMAL] = coinTimeToLive;
+        timeToLive[SPECIAL] = specialCoinTimeToLive;
+        this.evictionPolicy = evictionPolicy;
+        xs = new int[capacity];
+        ys = new int[capacity];
+        kinds = new byte[capacity];
+        arrivals = new long[capacity];
+        expires = new long[capacity];
+        order = new long[capacity];
+        previous = new int[capacity];
+        next = new int[capacity];
+        free = new int[capacity];
+        clear();
+    }
+
+    // turns the name used in goblin.eviction into one of the policies above
+    public static int parsePolicy(String name) {
+        if (name.equals("oldest")) {
+            return OLDEST_FIRST;
+        } else if (name.equals("nonSpecial")) {
+            return NON_SPECIAL_FIRST;
+        }
+        throw new IllegalArgumentException("unknown eviction policy " + name + ", use oldest or nonSpecial");
+    }
+
+    public static String policyName(int policy) {
+        return policy == NON_SPECIAL_FIRST ? "nonSpecial" : "oldest";
+    }
+
+    public boolean isFull() {
+        return freeCount == 0;
+    }
+
+    public int size() {
+        return capacity - freeCount;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // adds a coin that arrived on the given tick and returns its slot.
+    // the field must not be full, make room with remove() first
+    public int add(int x, int y, boolean special, long tick) {
+        int slot = free[--freeCount];
+        int kind = special ? SPECIAL : NORMAL;
+        xs[slot] = x;
+        ys[slot] = y;
+        kinds[slot] = (byte) kind;
+        arrivals[slot] = tick;
+        expires[slot] = timeToLive[kind] > 0 ? tick + timeToLive[kind] : Long.MAX_VALUE;
+        order[slot] = added++;
+        // new coins go on the end of their list
+        previous[slot] = last[kind];
+        next[slot] = NONE;
+        if (last[kind] == NONE) {
+            first[kind] = slot;
+        } else {
+            next[last[kind]] = slot;
+        }
+        last[kind] = slot;
+        return slot;
+    }
+
+    public void remove(int slot) {
+        int kind = kinds[slot];
+        if (previous[slot] == NONE) {
+            first[kind] = next[slot];
+        } else {
+            next[previous[slot]] = next[slot];
+        }
+        if (next[slot] == NONE) {
+            last[kind] = previous[slot];
+        } else {
+            previous[next[slot]] = previous[slot];
+        }
+        free[freeCount++] = slot;
+    }
+
+    // returns the slot of a coin that has run out of time by the given tick,
+    // or NONE if there aren't any. call remove() on it before asking again
+    public int nextExpired(long tick) {
+        for (int kind = NORMAL; kind <= SPECIAL; kind++) {
+            int slot = first[kind];
+            if (slot != NONE && expires[slot] <= tick) {
+                return slot;
+            }
+        }
+        return NONE;
+    }
+
+    // returns the tick the next coin runs out of time on, or Long.MAX_VALUE
+    // if no coin ever will
+    public long nextExpiry() {
+        long expiry = Long.MAX_VALUE;
+        for (int kind = NORMAL; kind <= SPECIAL; kind++) {
+            int slot = first[kind];
+            if (slot != NONE) {
+                expiry = Math.min(expiry, expires[slot]);
+            }
+        }
+        return expiry;
+    }
+
+    // returns the slot of the coin that should make room for a new one
+    public int evictionCandidate() {
+        int normal = first[NORMAL];
+        int special = first[SPECIAL];
+        if (normal == NONE) {
+            return special;
+        }
+        if (special == NONE || evictionPolicy == NON_SPECIAL_FIRST) {
+            return normal;
+        }
+        return order[normal] < order[special] ? normal : special;
+    }
+
+    // the slots of every coin, oldest first. adding them to an empty field in
+    // this order, with the same arrival ticks, gives back the same field
+    public int[] slotsByArrival() {
+        int[] slots = new int[size()];
+        int normal = first[NORMAL];
+        int special = first[SPECIAL];
+        for (int i = 0; i < slots.length; i++) {
+            if (special == NONE || (normal != NONE && order[normal] < order[special])) {
+                slots[i] = normal;
+                normal = next[normal];
+            } else {
+                slots[i] = special;
+                special = next[special];
+            }
+        }
+        return slots;
+    }
+
+    public long getArrivalTick(int slot) {
+        return arrivals[slot];
+    }
+
+    public int getX(int slot) {
+        return xs[slot];
+    }
+
+    public int getY(int slot) {
+        return ys[slot];
+    }
+
+    public boolean isSpecial(int slot) {
+        return kinds[slot] == SPECIAL;
+    }
+
+    public void clear() {
+        // hand out the slots from 0 upwards
+        for (int i = 0; i < capacity; i++) {
+            free[i] = capacity - 1 - i;
+        }
+        freeCount = capacity;
+        Arrays.fill(first, NONE);
+        Arrays.fill(last, NONE);
+    }
+
+}
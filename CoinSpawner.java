@@ -0,0 +1,65 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class CoinSpawner {
+
+    // controls how often a new coin appears on the board, in seconds
+    public static final int SPAWN_PERIOD = 2;
+
+    // the game the coins are spawned into
+    private final Game game;
+    // runs the spawn task on its own background thread
+    private final ScheduledExecutorService executor;
+    // the currently running spawn task, or null while the spawner is stopped
+    private ScheduledFuture<?> task;
+    // called on the spawner thread after every spawn, or null
+    private volatile Runnable spawnListener;
+
+    public CoinSpawner(Game game) {
+        this.game = game;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coin-spawner");
+            // don't keep the app alive just because the spawner is still running
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void start() {
+        // never run two spawn tasks at once
+        stop();
+        task = executor.scheduleAtFixedRate(this::spawn, 0, SPAWN_PERIOD, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    // the listener is called on the spawner thread right after each coin is
+    // asked for, so whatever is running the game can wake up and add it
+    public void setSpawnListener(Runnable spawnListener) {
+        this.spawnListener = spawnListener;
+    }
+
+    public void shutdown() {
+        stop();
+        executor.shutdownNow();
+    }
+
+    private void spawn() {
+        // the game is the only thing that touches its grid, so the spawner
+        // never has to lock anything. it just asks for a coin on the next tick,
+        // and the game picks where it goes with its own seeded rng
+        game.requestCoin();
+        Runnable listener = spawnListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+}
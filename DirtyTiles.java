@@ -0,0 +1,38 @@
+import java.util.Arrays;
+
+public class DirtyTiles {
+
+    // the x and y of every tile that changed, in the order they were added.
+    // the arrays only ever grow, so once the game is running adding a tile
+    // doesn't allocate anything
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private int count;
+
+    public void add(int x, int y) {
+        if (count == xs.length) {
+            xs = Arrays.copyOf(xs, count * 2);
+            ys = Arrays.copyOf(ys, count * 2);
+        }
+        xs[count] = x;
+        ys[count] = y;
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getX(int i) {
+        return xs[i];
+    }
+
+    public int getY(int i) {
+        return ys[i];
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+}
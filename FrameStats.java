@@ -0,0 +1,68 @@
+// keeps track of how evenly frames are being shown. it remembers the time
+// between the most recent frames so we can see the typical (p50) and the
+// worst (p99) frame interval, and counts frames that came too late
+public class FrameStats {
+
+    // how many of the most recent frame intervals are kept
+    private static final int WINDOW = 1024;
+
+    // the time between frames we're aiming for
+    private final long targetNanos;
+    // the most recent intervals
+    private final RecentTimes intervals = new RecentTimes(WINDOW);
+    // when the previous frame was shown, or 0 before the first frame
+    private long lastFrame;
+    private long frames;
+    private long droppedFrames;
+
+    public FrameStats(long targetNanos) {
+        this.targetNanos = targetNanos;
+    }
+
+    // call this once every time a frame is shown
+    public synchronized void frame(long now) {
+        frames++;
+        if (lastFrame != 0) {
+            long interval = now - lastFrame;
+            intervals.add(interval);
+            // a frame that took at least one whole extra interval to show up
+            // means the frame we should have shown in between was dropped
+            if (interval >= targetNanos * 3 / 2) {
+                droppedFrames += (interval - targetNanos / 2) / targetNanos;
+            }
+        }
+        lastFrame = now;
+    }
+
+    // forget the time of the last frame, for when frames stop on purpose
+    // (like on the end screen) so the gap doesn't count as dropped frames
+    public synchronized void pause() {
+        lastFrame = 0;
+    }
+
+    // returns the given percentile (0-100) of the recent frame intervals in nanoseconds
+    public synchronized long percentile(double percentile) {
+        return intervals.percentile(percentile);
+    }
+
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "frames %d, target %.2f ms, p50 %.2f ms, p99 %.2f ms, dropped %d",
+            getFrames(),
+            targetNanos / 1e6,
+            percentile(50) / 1e6,
+            percentile(99) / 1e6,
+            getDroppedFrames()
+        );
+    }
+
+}
@@ -0,0 +1,532 @@
+import java.awt.Point;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Game {
+
+    // inputs that can be passed to step(). one arrow key press moves the
+    // player by one whole tile
+    public static final int NONE = 0;
+    public static final int UP = 1;
+    public static final int RIGHT = 2;
+    public static final int DOWN = 3;
+    public static final int LEFT = 4;
+
+    // controls the default size of the board
+    public static final int ROWS = 15;
+    public static final int COLUMNS = 20;
+    // controls how many damage tiles appear on the board
+    public static final int NUM_BOMBS = 5;
+    // controls how many walls appear on the board
+    public static final int NUM_WALLS = 10;
+    // controls how many coins appear on the board
+    public static final int NUM_COINS = 5;
+    // the game is won when the player has collected this much gold
+    public static final int WINNING_SCORE = 3000;
+    // by default a new coin is special if a roll from 0 to SPECIAL_COIN_ODDS - 1
+    // comes up below SPECIAL_COIN_CHANCE, see GameConfig
+    public static final int SPECIAL_COIN_ODDS = 11;
+    public static final int SPECIAL_COIN_CHANCE = 2;
+    // how long one tick lasts in ms, and so how many times step() is called
+    // every second by the Board timer or the GameCanvas loop
+    public static final int TICK_MILLIS = 25;
+    public static final int TICKS_PER_SECOND = 1000 / TICK_MILLIS;
+    // at most this many coins are on the board at once, see CoinField
+    public static final int MAX_COINS = 500;
+    // how long a coin stays on the board before it vanishes, in ticks. special
+    // coins don't hang around as long, so they are worth hurrying for
+    public static final long COIN_TIME_TO_LIVE = 60 * TICKS_PER_SECOND;
+    public static final long SPECIAL_COIN_TIME_TO_LIVE = 15 * TICKS_PER_SECOND;
+
+    // the size of the board and how much goes on it
+    private final GameConfig config;
+    private final int columns;
+    private final int rows;
+    // objects that appear on the game board
+    private final Player player;
+    // holds every wall, bomb and coin, indexed by the tile they are on
+    private final Grid grid;
+    // how long each coin has been on the board, and which one goes first when it's full
+    private final CoinField coinField;
+    // how many coins didn't fit because their tile was already taken
+    private long rejectedCoins;
+    // finds the way to the nearest coin, made the first time someone asks for it
+    private Pathfinder pathfinder;
+    // every random choice the game makes comes from here, so two games with
+    // the same seed and the same inputs play out exactly the same
+    private final Rng rng;
+    // how many coins other threads (like the CoinSpawner) asked for since the
+    // last tick. where they go is decided by step(), using the game's own rng
+    private final AtomicInteger pendingSpawns = new AtomicInteger();
+    // coins placed by hand from other threads that haven't been put on the
+    // board yet. only step() takes them off, so the grid itself is only ever
+    // touched by whichever thread is running the game
+    private final ConcurrentLinkedQueue<Coin> pendingCoins = new ConcurrentLinkedQueue<>();
+    // if set, every input and coin spawn is written down here so the game can be replayed
+    private InputLog inputLog;
+    // how many times step() has been called since the game was created
+    private long ticks;
+    // the tiles that changed during the last call to step(), so the board
+    // only has to redraw those
+    private final DirtyTiles dirtyTiles = new DirtyTiles();
+    // the hand made board each round starts with, or null for a random one
+    private Level level;
+    // goes up every time walls or bombs are added or removed, so anything that
+    // caches them (like the board's background image) knows when to redo it
+    private long layoutVersion;
+
+    // Two boolean variables that determine win screen text
+    private boolean win = false;
+    private boolean lose = false;
+
+    public Game() {
+        this(new GameConfig());
+    }
+
+    public Game(int columns, int rows) {
+        this(new GameConfig(columns, rows));
+    }
+
+    public Game(GameConfig config) {
+        this(config, true);
+    }
+
+    // an empty board is only wanted by Snapshot, which fills it in itself
+    Game(GameConfig config, boolean populate) {
+        this.config = config;
+        columns = config.getColumns();
+        rows = config.getRows();
+        grid = new Grid(columns, rows, config.getMaxCoins());
+        coinField = new CoinField(config.getMaxCoins(), config.getCoinTimeToLive(),
+            config.getSpecialCoinTimeToLive(), config.getEvictionPolicy());
+        rng = new Rng(config.getSeed());
+        player = new Player();
+        if (populate) {
+            populateBoard();
+        }
+    }
+
+    // advances the game by one tick. input is one of the direction constants
+    // above, or NONE if no key was pressed since the last tick
+    public void step(int input) {
+        if (win || lose) {
+            return;
+        }
+        ticks++;
+        dirtyTiles.clear();
+        int startX = player.getPos().x;
+        int startY = player.getPos().y;
+
+        // put any coins the spawner asked for since the last tick onto the board
+        int spawns = pendingSpawns.getAndSet(0);
+        for (int i = 0; i < spawns; i++) {
+            spawnCoin();
+        }
+        addPendingCoins();
+        // coins that have been around too long disappear
+        int expired;
+        while ((expired = coinField.nextExpired(ticks)) != CoinField.NONE) {
+            removeCoin(expired);
+        }
+
+        if (inputLog != null && (input != NONE || spawns > 0)) {
+            inputLog.step(ticks, input, spawns);
+        }
+
+        movePlayer(input);
+
+        // removes coins and moves the player if they encounter a bomb tile
+        // or prevents the player from disappearing off the board/into a wall
+        player.tick(grid);
+
+        // the tile the player left and the one they ended up on both need redrawing
+        Point pos = player.getPos();
+        if (pos.x != startX || pos.y != startY) {
+            dirtyTiles.add(startX, startY);
+            dirtyTiles.add(pos.x, pos.y);
+        }
+
+        // give the player points for collecting coins
+        collectCoins();
+
+        // the game stops everything when the score hits 3000 or the player dies three times
+        if (player.getScore() >= WINNING_SCORE) {
+            win = true;
+            clearBoard();
+        } else if (player.getLives() == 0) {
+            lose = true;
+            clearBoard();
+        }
+    }
+
+    // how many ticks from now the game can go without anything happening on
+    // its own, as long as no key is pressed and no coin is asked for. that's
+    // until the next coin runs out of time, or Long.MAX_VALUE if none will
+    public long getQuietTicks() {
+        long expiry = coinField.nextExpiry();
+        return expiry == Long.MAX_VALUE ? Long.MAX_VALUE : expiry - ticks;
+    }
+
+    // moves the clock on by up to count ticks in one go, which is the same as
+    // calling step(NONE) that many times while nothing is going on. it stops
+    // one tick before the next coin runs out of time, so step() still takes
+    // that coin away on the right tick. returns how many ticks were skipped.
+    // used by TickScheduler to catch up on the ticks it slept through
+    public long skipQuietTicks(long count) {
+        if (win || lose) {
+            return 0;
+        }
+        long skipped = Math.min(count, getQuietTicks() - 1);
+        if (skipped <= 0) {
+            return 0;
+        }
+        ticks += skipped;
+        dirtyTiles.clear();
+        return skipped;
+    }
+
+    private void movePlayer(int input) {
+        int dx = 0;
+        int dy = 0;
+        if (input == UP) {
+            dy = -1;
+        } else if (input == RIGHT) {
+            dx = 1;
+        } else if (input == DOWN) {
+            dy = 1;
+        } else if (input == LEFT) {
+            dx = -1;
+        } else {
+            return;
+        }
+        if (player.canMove(dx, dy, grid)) {
+            player.move(dx, dy);
+        }
+    }
+
+    // safe to call from any thread, a coin shows up somewhere random on the next tick
+    public void requestCoin() {
+        pendingSpawns.incrementAndGet();
+    }
+
+    private void spawnCoin() {
+        int coinX = rng.nextInt(columns);
+        int coinY = rng.nextInt(rows);
+        addCoin(coinX, coinY, rollSpecial());
+    }
+
+    private boolean rollSpecial() {
+        return rng.nextInt(config.getSpecialCoinOdds()) < config.getSpecialCoinChance();
+    }
+
+    // safe to call from any thread, the coin shows up on the next tick.
+    // coins placed this way are not written to the input log
+    public void queueCoin(Coin coin) {
+        pendingCoins.offer(coin);
+    }
+
+    private void addPendingCoins() {
+        Coin coin;
+        while ((coin = pendingCoins.poll()) != null) {
+            addCoin(coin.getPos().x, coin.getPos().y, coin.getSpecial());
+        }
+    }
+
+    private void addCoin(int x, int y, boolean special) {
+        // a tile holds one thing at most, so coins don't go on walls, bombs or
+        // other coins. the grid can tell us that straight away
+        if (!grid.contains(x, y) || grid.isOccupied(x, y)) {
+            rejectedCoins++;
+            return;
+        }
+        GameEvents.CoinSpawn event = GameEvents.beginCoinSpawn();
+        if (coinField.isFull()) {
+            removeCoin(coinField.evictionCandidate());
+        }
+        int slot = coinField.add(x, y, special, ticks);
+        grid.addCoin(x, y, special, slot);
+        dirtyTiles.add(x, y);
+        if (pathfinder != null) {
+            pathfinder.coinAdded(x, y);
+        }
+        GameEvents.endCoinSpawn(event, x, y, special, coinField.size());
+    }
+
+    // takes the coin in the given slot of the coin field off the board, without scoring it
+    private void removeCoin(int slot) {
+        int x = coinField.getX(slot);
+        int y = coinField.getY(slot);
+        coinField.remove(slot);
+        grid.removeCoins(x, y);
+        dirtyTiles.add(x, y);
+        if (pathfinder != null) {
+            pathfinder.coinRemoved(x, y);
+        }
+    }
+
+    // package-private so Benchmarks can time it on its own
+    void collectCoins() {
+        // allow player to pickup coins
+        Point pos = player.getPos();
+        int normalCoins = grid.getCoins(pos.x, pos.y);
+        int specialCoins = grid.getSpecialCoins(pos.x, pos.y);
+        if (normalCoins == 0 && specialCoins == 0) {
+            return;
+        }
+        // give the player some points for picking these up
+        player.addScore(normalCoins * 50 + specialCoins * 300);
+        // remove collected coins from the board
+        int slot = grid.removeCoins(pos.x, pos.y);
+        if (slot != CoinField.NONE) {
+            coinField.remove(slot);
+        }
+        dirtyTiles.add(pos.x, pos.y);
+        if (pathfinder != null) {
+            pathfinder.coinRemoved(pos.x, pos.y);
+        }
+    }
+
+    private void populateBoard() {
+        layoutVersion++;
+        if (level != null) {
+            try {
+                level.fill(this);
+                return;
+            } catch (IOException exc) {
+                // the file changed or went away since the game started
+                System.out.println("Error reading level, making a random board instead: " + exc.getMessage());
+                level = null;
+                grid.clear();
+                coinField.clear();
+            }
+        }
+        // walls, bombs and coins all come out of one pool of free tiles, so no
+        // two of them ever share a tile. the player's starting tile isn't in it
+        Placement placement = new Placement(Math.multiplyExact(columns, rows), 0, rng);
+        createWalls(placement);
+        createBombs(placement);
+        // move any walls and bombs that cut free tiles off from the start.
+        // the tiles they were on go back in the pool for coins
+        Reachability.connect(grid, 0, 0, placement, rng);
+        placement.returnSetAside();
+        populateCoins(placement);
+    }
+
+    private void clearBoard() {
+        layoutVersion++;
+        pendingSpawns.set(0);
+        pendingCoins.clear();
+        dirtyTiles.clear();
+        grid.clear();
+        coinField.clear();
+    }
+
+    public void restart() {
+        if (inputLog != null) {
+            inputLog.restart(ticks);
+        }
+        win = false;
+        lose = false;
+        player.reset();
+
+        // initialize the game state
+        clearBoard();
+        populateBoard();
+    }
+
+    void createBombs(Placement placement) {
+        // create the given number of bomb tiles in random positions on the board.
+        // every bomb gets a tile of its own, and none go next to the player's
+        // starting spot, see awayFromStart()
+        for (int i = 0; i < config.getNumBombs(); i++) {
+            int cell = awayFromStart(placement);
+            if (cell < 0) {
+                // the board is full
+                break;
+            }
+            grid.addBomb(cell % columns, cell / columns);
+        }
+    }
+
+    void createWalls(Placement placement) {
+        // create the given number of walls in random positions on the board.
+        // every wall gets a tile of its own, and none go next to the player's
+        // starting spot, see awayFromStart()
+        for (int i = 0; i < config.getNumWalls(); i++) {
+            int cell = awayFromStart(placement);
+            if (cell < 0) {
+                break;
+            }
+            grid.addWall(cell % columns, cell / columns);
+        }
+    }
+
+    void populateCoins(Placement placement) {
+        // create the given number of coins in random positions on the board,
+        // on tiles that no wall, bomb or other coin is using
+        for (int i = 0; i < config.getNumCoins(); i++) {
+            int cell = placement.next();
+            // a wall or bomb Reachability moved may be on a tile still in the pool
+            while (cell >= 0 && grid.isOccupied(cell % columns, cell / columns)) {
+                cell = placement.next();
+            }
+            if (cell < 0) {
+                break;
+            }
+            addCoin(cell % columns, cell / columns, rollSpecial());
+        }
+    }
+
+    // picks a free tile that isn't right next to where the player starts.
+    // the player starts in the top left corner and the board wraps around, so
+    // those are the four tiles the player can step to on the first move, and
+    // keeping walls and bombs off them means the first move is never into a
+    // wall or onto a bomb. it doesn't stop walls and bombs further out from
+    // cutting the player off, Reachability takes care of that. the tiles we
+    // skip go back in the pool for coins
+    private int awayFromStart(Placement placement) {
+        int cell = placement.next();
+        while (cell >= 0 && isNextToStart(cell)) {
+            placement.setAside(cell);
+            cell = placement.next();
+        }
+        return cell;
+    }
+
+    private boolean isNextToStart(int cell) {
+        int x = cell % columns;
+        int y = cell / columns;
+        return (y == 0 && (x == 1 || x == columns - 1))
+            || (x == 0 && (y == 1 || y == rows - 1));
+    }
+
+    // puts a coin from a level on the board, see Level
+    void placeCoin(int x, int y, boolean special) {
+        addCoin(x, y, special);
+    }
+
+    // every round after this one starts on the level instead of a random board
+    void setLevel(Level level) {
+        this.level = level;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    // puts a saved coin back on the board, see Snapshot. coins have to be put
+    // back oldest first so they vanish in the same order as before. returns
+    // false without changing anything if the tile is off the board or already
+    // has a wall, bomb or coin on it, or if there's no room left for the coin
+    boolean restoreCoin(int x, int y, boolean special, long arrivalTick) {
+        if (!grid.contains(x, y) || grid.isOccupied(x, y) || coinField.isFull()) {
+            return false;
+        }
+        int slot = coinField.add(x, y, special, arrivalTick);
+        return grid.addCoin(x, y, special, slot);
+    }
+
+    // puts back everything else a saved game had, once the board is filled in
+    void restoreState(long savedTicks, long rngState, boolean won, boolean lost,
+            int pendingCoinSpawns, long rejected) {
+        ticks = savedTicks;
+        rng.setState(rngState);
+        win = won;
+        lose = lost;
+        pendingSpawns.set(pendingCoinSpawns);
+        rejectedCoins = rejected;
+        // anything drawn or worked out for the old board is out of date
+        layoutVersion++;
+    }
+
+    long getRngState() {
+        return rng.getState();
+    }
+
+    int getPendingSpawns() {
+        return pendingSpawns.get();
+    }
+
+    // keeping the pathfinder up to date costs a little on every coin that
+    // comes or goes, so games that never ask for it don't pay for it
+    public Pathfinder getPathfinder() {
+        if (pathfinder == null) {
+            pathfinder = new Pathfinder(this);
+        }
+        return pathfinder;
+    }
+
+    public CoinField getCoinField() {
+        return coinField;
+    }
+
+    public long getRejectedCoins() {
+        return rejectedCoins;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public GameConfig getConfig() {
+        return config;
+    }
+
+    public int getCoinCount() {
+        return grid.getCoinCount();
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public int getScore() {
+        return player.getScore();
+    }
+
+    public int getLives() {
+        return player.getLives();
+    }
+
+    public void setInputLog(InputLog inputLog) {
+        this.inputLog = inputLog;
+    }
+
+    public InputLog getInputLog() {
+        return inputLog;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public DirtyTiles getDirtyTiles() {
+        return dirtyTiles;
+    }
+
+    public long getLayoutVersion() {
+        return layoutVersion;
+    }
+
+    public boolean isWon() {
+        return win;
+    }
+
+    public boolean isLost() {
+        return lose;
+    }
+
+    public boolean isOver() {
+        return win || lose;
+    }
+
+}
@@ -0,0 +1,204 @@
+import java.awt.Canvas;
+import java.awt.Dimension;
+import java.awt.DisplayMode;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Toolkit;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+// an alternative to Board that doesn't rely on the Swing timer. it runs the
+// game on its own thread with a fixed time step, and draws straight to the
+// screen through a BufferStrategy as often as the display refreshes.
+// App uses this instead of Board when started with --active
+public class GameCanvas extends Canvas implements KeyListener, Runnable {
+
+    // how long one tick of the game lasts. this is the same tick the Board
+    // timer uses, so the game plays at the same speed no matter how it's drawn
+    private static final long STEP_NANOS = Game.TICK_MILLIS * 1_000_000L;
+    // if we fall this many ticks behind (say the computer was asleep) we give up
+    // catching up instead of running them all at once
+    private static final int MAX_STEPS_PER_FRAME = 5;
+    // used when the display doesn't tell us its refresh rate
+    private static final int DEFAULT_REFRESH_RATE = 60;
+    // suppress serialization warning
+    private static final long serialVersionUID = 6024614209117285021L;
+
+    // runs the game's ticks and keys, the same way Board does. keys arrive
+    // on the Swing thread while the game runs on ours
+    private final GameSession session;
+    // the game itself and what draws it, from the session
+    private final Game game;
+    private final Renderer renderer;
+    private volatile boolean running;
+    private Thread loop;
+    // how evenly frames are being shown
+    private FrameStats frameStats;
+    // called after the first frame is drawn, or null
+    private volatile Runnable firstFrameListener;
+
+    public GameCanvas() {
+        this(new Game(GameConfig.fromSystemProperties()));
+    }
+
+    public GameCanvas(Game game) {
+        this.game = game;
+        session = new GameSession(game);
+        renderer = session.getRenderer();
+        setPreferredSize(new Dimension(renderer.getWidth(), renderer.getHeight()));
+        setBackground(Renderer.BACKGROUND_COLOR);
+        // we draw everything ourselves, so stop AWT from clearing the canvas
+        setIgnoreRepaint(true);
+        // let the window keep the keyboard focus, App passes the keys on to us
+        setFocusable(false);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        // the canvas is on screen now, so it can have a buffer strategy
+        createBufferStrategy(2);
+        frameStats = new FrameStats(1_000_000_000L / refreshRate());
+        running = true;
+        session.start();
+        loop = new Thread(this, "game-loop");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        running = false;
+        try {
+            // the loop draws to our buffers, so let it finish before they go away
+            loop.join();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+        session.shutdown();
+        super.removeNotify();
+    }
+
+    private int refreshRate() {
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (config != null) {
+            DisplayMode mode = config.getDevice().getDisplayMode();
+            if (mode.getRefreshRate() != DisplayMode.REFRESH_RATE_UNKNOWN) {
+                return mode.getRefreshRate();
+            }
+        }
+        return DEFAULT_REFRESH_RATE;
+    }
+
+    @Override
+    public void run() {
+        long frameNanos = 1_000_000_000L / refreshRate();
+        long previous = System.nanoTime();
+        // how much game time has passed that hasn't been simulated yet
+        long lag = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            lag += now - previous;
+            previous = now;
+
+            // only the loop thread touches the game, so a restart or quit happens here
+            if (session.restartIfRequested()) {
+                lag = 0;
+            }
+
+            // run however many whole ticks fit into the time that has passed
+            int steps = 0;
+            while (lag >= STEP_NANOS && steps < MAX_STEPS_PER_FRAME) {
+                // this also hands what's on screen after the tick over to render()
+                session.tick();
+                lag -= STEP_NANOS;
+                steps++;
+            }
+            if (steps == MAX_STEPS_PER_FRAME) {
+                lag = 0;
+            }
+
+            render();
+            frameStats.frame(System.nanoTime());
+            if (firstFrameListener != null) {
+                firstFrameListener.run();
+                firstFrameListener = null;
+            }
+
+            // wait for the next display refresh instead of spinning
+            long sleep = frameNanos - (System.nanoTime() - now);
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+            }
+        }
+    }
+
+    private void render() {
+        Performance performance = session.getPerformance();
+        long start = performance.start();
+        GameEvents.Paint event = GameEvents.beginPaint();
+        BufferStrategy strategy = getBufferStrategy();
+        // the buffers can be lost at any time (like when the screen mode
+        // changes), in which case we just draw the frame again
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    renderer.draw(g, getGraphicsConfiguration(), this);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+
+        // this smooths out animations on some systems
+        Toolkit.getDefaultToolkit().sync();
+        session.getInputQueue().frameShown(System.nanoTime());
+        // every frame redraws the whole canvas
+        long pixels = (long) getWidth() * getHeight();
+        GameEvents.endPaint(event, pixels, game);
+        performance.paintEnd(start, pixels);
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
+
+    public Performance getPerformance() {
+        return session.getPerformance();
+    }
+
+    public InputQueue getInputQueue() {
+        return session.getInputQueue();
+    }
+
+    public void setFirstFrameListener(Runnable firstFrameListener) {
+        this.firstFrameListener = firstFrameListener;
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {
+        // this is not used but must be defined as part of the KeyListener interface
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        // react to key down events. we draw every frame anyway, so there is
+        // nothing to redraw here, and a restart or quit happens on the game loop
+        session.keyPressed(e.getKeyCode());
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        // react to key up events
+    }
+
+}
@@ -0,0 +1,218 @@
+import java.util.Random;
+
+// the settings a game is started with. the defaults give the original 20x15
+// board, and every value can be changed with a system property, like
+//
+//     java -Dgoblin.columns=2000 -Dgoblin.rows=2000 -Dgoblin.walls=200000 App
+//
+// times (like goblin.coinTtl) are in ticks, and there are Game.TICKS_PER_SECOND
+// ticks in a second
+//
+public class GameConfig {
+
+    // the default size of each tile on screen in pixels
+    public static final int DEFAULT_TILE_SIZE = 60;
+
+    // size of the whole world in tiles
+    private final int columns;
+    private final int rows;
+    // how many walls, bombs and coins are placed at the start of a round
+    private final int numWalls;
+    private final int numBombs;
+    private final int numCoins;
+    // size of each tile on screen, and how many tiles fit on screen at once
+    private final int tileSize;
+    private final int viewColumns;
+    private final int viewRows;
+    // every random choice in the game comes from this, see Rng
+    private final long seed;
+    // how many coins fit on the board at once, how many ticks normal and
+    // special coins stay before they vanish (0 for forever), and which coins
+    // make room for new ones once the board is full. see CoinField
+    private final int maxCoins;
+    private final long coinTimeToLive;
+    private final long specialCoinTimeToLive;
+    private final int evictionPolicy;
+    // a new coin is special specialCoinChance times out of specialCoinOdds
+    private final int specialCoinOdds;
+    private final int specialCoinChance;
+
+    public GameConfig() {
+        this(Game.COLUMNS, Game.ROWS);
+    }
+
+    public GameConfig(int columns, int rows) {
+        this(columns, rows, Game.NUM_WALLS, Game.NUM_BOMBS, Game.NUM_COINS,
+            DEFAULT_TILE_SIZE, Game.COLUMNS, Game.ROWS, randomSeed());
+    }
+
+    public GameConfig(int columns, int rows, int numWalls, int numBombs, int numCoins,
+            int tileSize, int viewColumns, int viewRows, long seed) {
+        this(columns, rows, numWalls, numBombs, numCoins, tileSize, viewColumns, viewRows, seed,
+            Game.MAX_COINS, Game.COIN_TIME_TO_LIVE, Game.SPECIAL_COIN_TIME_TO_LIVE, CoinField.OLDEST_FIRST);
+    }
+
+    public GameConfig(int columns, int rows, int numWalls, int numBombs, int numCoins,
+            int tileSize, int viewColumns, int viewRows, long seed,
+            int maxCoins, long coinTimeToLive, long specialCoinTimeToLive, int evictionPolicy) {
+        this(columns, rows, numWalls, numBombs, numCoins, tileSize, viewColumns, viewRows, seed,
+            maxCoins, coinTimeToLive, specialCoinTimeToLive, evictionPolicy,
+            Game.SPECIAL_COIN_ODDS, Game.SPECIAL_COIN_CHANCE);
+    }
+
+    private GameConfig(int columns, int rows, int numWalls, int numBombs, int numCoins,
+            int tileSize, int viewColumns, int viewRows, long seed,
+            int maxCoins, long coinTimeToLive, long specialCoinTimeToLive, int evictionPolicy,
+            int specialCoinOdds, int specialCoinChance) {
+        if (columns < 1 || rows < 1 || tileSize < 1 || viewColumns < 1 || viewRows < 1) {
+            throw new IllegalArgumentException("board and tile sizes must be positive");
+        }
+        if (numWalls < 0 || numBombs < 0 || numCoins < 0) {
+            throw new IllegalArgumentException("entity counts can't be negative");
+        }
+        if (maxCoins < 1 || coinTimeToLive < 0 || specialCoinTimeToLive < 0) {
+            throw new IllegalArgumentException("there must be room for a coin, and coins can't live for negative time");
+        }
+        if (evictionPolicy != CoinField.OLDEST_FIRST && evictionPolicy != CoinField.NON_SPECIAL_FIRST) {
+            throw new IllegalArgumentException("unknown eviction policy " + evictionPolicy);
+        }
+        if (specialCoinOdds < 1 || specialCoinChance < 0 || specialCoinChance > specialCoinOdds) {
+            throw new IllegalArgumentException("the special coin chance has to be from 0 up to the odds, which must be positive");
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.numWalls = numWalls;
+        this.numBombs = numBombs;
+        this.numCoins = numCoins;
+        this.tileSize = tileSize;
+        // the screen never shows more than the whole world
+        this.viewColumns = Math.min(viewColumns, columns);
+        this.viewRows = Math.min(viewRows, rows);
+        this.seed = seed;
+        this.maxCoins = maxCoins;
+        this.coinTimeToLive = coinTimeToLive;
+        this.specialCoinTimeToLive = specialCoinTimeToLive;
+        this.evictionPolicy = evictionPolicy;
+        this.specialCoinOdds = specialCoinOdds;
+        this.specialCoinChance = specialCoinChance;
+    }
+
+    private static long randomSeed() {
+        return new Random().nextLong();
+    }
+
+    // the same settings with a different seed
+    public GameConfig withSeed(long newSeed) {
+        return new GameConfig(columns, rows, numWalls, numBombs, numCoins,
+            tileSize, viewColumns, viewRows, newSeed,
+            maxCoins, coinTimeToLive, specialCoinTimeToLive, evictionPolicy,
+            specialCoinOdds, specialCoinChance);
+    }
+
+    // the same settings with different limits on coins
+    public GameConfig withCoinLimits(int newMaxCoins, long newCoinTimeToLive,
+            long newSpecialCoinTimeToLive, int newEvictionPolicy) {
+        return new GameConfig(columns, rows, numWalls, numBombs, numCoins,
+            tileSize, viewColumns, viewRows, seed,
+            newMaxCoins, newCoinTimeToLive, newSpecialCoinTimeToLive, newEvictionPolicy,
+            specialCoinOdds, specialCoinChance);
+    }
+
+    // the same settings with a new coin being special newChance times out of newOdds
+    public GameConfig withSpecialCoinOdds(int newOdds, int newChance) {
+        return new GameConfig(columns, rows, numWalls, numBombs, numCoins,
+            tileSize, viewColumns, viewRows, seed,
+            maxCoins, coinTimeToLive, specialCoinTimeToLive, evictionPolicy,
+            newOdds, newChance);
+    }
+
+    public static GameConfig fromSystemProperties() {
+        return fromSystemProperties(
+            Integer.getInteger("goblin.columns", Game.COLUMNS),
+            Integer.getInteger("goblin.rows", Game.ROWS)
+        );
+    }
+
+    // the settings from the system properties, for a world of the given size
+    // (like the size of a Level) whatever goblin.columns and goblin.rows say
+    public static GameConfig fromSystemProperties(int columns, int rows) {
+        return new GameConfig(
+            columns,
+            rows,
+            Integer.getInteger("goblin.walls", Game.NUM_WALLS),
+            Integer.getInteger("goblin.bombs", Game.NUM_BOMBS),
+            Integer.getInteger("goblin.coins", Game.NUM_COINS),
+            Integer.getInteger("goblin.tileSize", DEFAULT_TILE_SIZE),
+            Integer.getInteger("goblin.viewColumns", Game.COLUMNS),
+            Integer.getInteger("goblin.viewRows", Game.ROWS),
+            Long.getLong("goblin.seed", randomSeed()),
+            Integer.getInteger("goblin.maxCoins", Game.MAX_COINS),
+            Long.getLong("goblin.coinTtl", Game.COIN_TIME_TO_LIVE),
+            Long.getLong("goblin.specialCoinTtl", Game.SPECIAL_COIN_TIME_TO_LIVE),
+            CoinField.parsePolicy(System.getProperty("goblin.eviction", "oldest")),
+            Integer.getInteger("goblin.specialCoinOdds", Game.SPECIAL_COIN_ODDS),
+            Integer.getInteger("goblin.specialCoinChance", Game.SPECIAL_COIN_CHANCE)
+        );
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getNumWalls() {
+        return numWalls;
+    }
+
+    public int getNumBombs() {
+        return numBombs;
+    }
+
+    public int getNumCoins() {
+        return numCoins;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getViewColumns() {
+        return viewColumns;
+    }
+
+    public int getViewRows() {
+        return viewRows;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getMaxCoins() {
+        return maxCoins;
+    }
+
+    public long getCoinTimeToLive() {
+        return coinTimeToLive;
+    }
+
+    public long getSpecialCoinTimeToLive() {
+        return specialCoinTimeToLive;
+    }
+
+    public int getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public int getSpecialCoinOdds() {
+        return specialCoinOdds;
+    }
+
+    public int getSpecialCoinChance() {
+        return specialCoinChance;
+    }
+
+}
@@ -0,0 +1,181 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// events for the JDK Flight Recorder, so a recording of a running game shows
+// every tick, paint, coin spawn and image load next to the garbage collector
+// and everything else the JVM records. start the game with
+//
+//     java -XX:StartFlightRecording=filename=game.jfr App
+//
+// (or start a recording later with jcmd <pid> JFR.start) and open game.jfr in
+// JDK Mission Control. when nothing is recording the begin methods below
+// return null straight away, so the game doesn't make a single event object
+// or even load the flight recorder
+public class GameEvents {
+
+    @Name("goblin.Tick")
+    @Label("Tick")
+    @Category("Goblin Adventure")
+    @Description("One step of the game")
+    static class Tick extends Event {
+        @Label("Tick")
+        long tick;
+        @Label("Walls")
+        int walls;
+        @Label("Bombs")
+        int bombs;
+        @Label("Coins")
+        int coins;
+    }
+
+    @Name("goblin.Paint")
+    @Label("Paint")
+    @Category("Goblin Adventure")
+    @Description("One time the board was drawn")
+    static class Paint extends Event {
+        @Label("Pixels")
+        long pixels;
+        @Label("Coins")
+        int coins;
+    }
+
+    @Name("goblin.CoinSpawn")
+    @Label("Coin Spawn")
+    @Category("Goblin Adventure")
+    @Description("A coin was put on the board")
+    static class CoinSpawn extends Event {
+        @Label("X")
+        int x;
+        @Label("Y")
+        int y;
+        @Label("Special")
+        boolean special;
+        @Label("Coins")
+        int coins;
+    }
+
+    @Name("goblin.AssetLoad")
+    @Label("Asset Load")
+    @Category("Goblin Adventure")
+    @Description("An image was read from disk")
+    static class AssetLoad extends Event {
+        @Label("Path")
+        String path;
+        @Label("Width")
+        int width;
+        @Label("Height")
+        int height;
+    }
+
+    // looking up an event type starts up the flight recorder, which takes a
+    // few hundred ms. this class is only loaded once something is recording
+    private static class Types {
+        static final EventType TICK = EventType.getEventType(Tick.class);
+        static final EventType PAINT = EventType.getEventType(Paint.class);
+        static final EventType COIN_SPAWN = EventType.getEventType(CoinSpawn.class);
+        static final EventType ASSET_LOAD = EventType.getEventType(AssetLoad.class);
+    }
+
+    private GameEvents() {
+        // this class only has static methods
+    }
+
+    // each begin method returns a started event if a recording wants it, or
+    // null if not. pass whatever it returned to the matching end method
+
+    public static Tick beginTick() {
+        if (!FlightRecorder.isInitialized() || !Types.TICK.isEnabled()) {
+            return null;
+        }
+        Tick event = new Tick();
+        event.begin();
+        return event;
+    }
+
+    public static void endTick(Tick event, Game game) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            Grid grid = game.getGrid();
+            event.tick = game.getTicks();
+            event.walls = grid.getWallCount();
+            event.bombs = grid.getBombCount();
+            event.coins = game.getCoinCount();
+            event.commit();
+        }
+    }
+
+    public static Paint beginPaint() {
+        if (!FlightRecorder.isInitialized() || !Types.PAINT.isEnabled()) {
+            return null;
+        }
+        Paint event = new Paint();
+        event.begin();
+        return event;
+    }
+
+    public static void endPaint(Paint event, long pixels, Game game) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.pixels = pixels;
+            event.coins = game.getCoinCount();
+            event.commit();
+        }
+    }
+
+    public static CoinSpawn beginCoinSpawn() {
+        if (!FlightRecorder.isInitialized() || !Types.COIN_SPAWN.isEnabled()) {
+            return null;
+        }
+        CoinSpawn event = new CoinSpawn();
+        event.begin();
+        return event;
+    }
+
+    public static void endCoinSpawn(CoinSpawn event, int x, int y, boolean special, int coins) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.x = x;
+            event.y = y;
+            event.special = special;
+            event.coins = coins;
+            event.commit();
+        }
+    }
+
+    public static AssetLoad beginAssetLoad() {
+        if (!FlightRecorder.isInitialized() || !Types.ASSET_LOAD.isEnabled()) {
+            return null;
+        }
+        AssetLoad event = new AssetLoad();
+        event.begin();
+        return event;
+    }
+
+    public static void endAssetLoad(AssetLoad event, String path, int width, int height) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.width = width;
+            event.height = height;
+            event.commit();
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+import java.awt.Point;
+import java.awt.event.KeyEvent;
+
+// one game being played, and everything that drives it apart from how often
+// it ticks and how it gets on screen. Board and GameCanvas both run their
+// ticks and pass their keys through here, so the two ways of running the game
+// always play it the same way.
+//
+// tick() and restartIfRequested() are called on whichever thread runs the
+// game (the Swing thread for Board, the loop thread for GameCanvas), and
+// keyPressed() on the Swing thread
+public class GameSession {
+
+    private final Game game;
+    // makes new coins in the background and hands them to the game
+    private final CoinSpawner coinSpawner;
+    // saves the game every so often, or null if goblin.save isn't set
+    private final Autosaver autosaver;
+    // draws the game, the front end just tells it when and where
+    private final Renderer renderer;
+    // the arrow keys pressed since the previous tick, taken one per tick
+    private final InputQueue inputQueue = new InputQueue();
+    // when this is on the bot plays instead of the keyboard, see Bot
+    private final Bot bot = new Bot();
+    private volatile boolean autoPlay = Boolean.getBoolean("goblin.autoplay");
+    // set when the player asks for another round or to quit, see restartIfRequested()
+    private volatile boolean restartRequested;
+    private volatile boolean quitRequested;
+    // how long ticks and paints take, for the overlay and JMX
+    private final Performance performance = new Performance();
+
+    public GameSession(Game game) {
+        this.game = game;
+        coinSpawner = new CoinSpawner(game);
+        autosaver = Autosaver.fromSystemProperties(game);
+        renderer = new Renderer(game);
+        renderer.setShowHint(Boolean.getBoolean("goblin.hints"));
+        renderer.setChunked(Boolean.getBoolean("goblin.chunkedRender"));
+        if (Boolean.getBoolean("goblin.overlay")) {
+            performance.setEnabled(true);
+            renderer.setOverlay(performance);
+        }
+    }
+
+    // call this once the game is on screen
+    public void start() {
+        coinSpawner.start();
+    }
+
+    // call this once the game is off screen for good
+    public void shutdown() {
+        coinSpawner.shutdown();
+        if (autosaver != null) {
+            autosaver.shutdown();
+        }
+    }
+
+    // runs one tick of the game with the next key press (or the bot's move)
+    // and hands what's on screen after it over to the renderer. returns
+    // whether the view scrolled, so everything needs drawing again
+    public boolean tick() {
+        long start = performance.start();
+        GameEvents.Tick event = GameEvents.beginTick();
+        boolean wasOver = game.isOver();
+        Point pos = game.getPlayer().getPos();
+        int oldX = pos.x;
+        int oldY = pos.y;
+        int input = inputQueue.take();
+        if (autoPlay) {
+            // keys pressed while the bot plays are thrown away
+            inputQueue.clear();
+            input = bot.nextInput(game);
+        }
+        game.step(input);
+        pos = game.getPlayer().getPos();
+        inputQueue.stepped(pos.x != oldX || pos.y != oldY);
+        GameEvents.endTick(event, game);
+        performance.tickEnd(start, game);
+        if (autosaver != null) {
+            autosaver.afterTick();
+        }
+
+        // the game stops everything when the score hits 3000 or the player dies three times
+        if (game.isOver() && !wasOver) {
+            // no more coins until the next round starts
+            coinSpawner.stop();
+        }
+        return renderer.publish();
+    }
+
+    // whether something is going on that needs a tick every tick, even if
+    // nothing in the game itself is about to change
+    public boolean isBusy() {
+        return autoPlay || inputQueue.size() > 0 || renderer.getOverlay() != null;
+    }
+
+    // starts a new round if the player asked for one and the current round
+    // is over, or quits if they asked for that instead. returns whether it
+    // started a new round
+    public boolean restartIfRequested() {
+        if (quitRequested) {
+            quitRequested = false;
+            if (game.isOver()) {
+                System.exit(0);
+            }
+        }
+        if (!restartRequested) {
+            return false;
+        }
+        restartRequested = false;
+        if (!game.isOver()) {
+            return false;
+        }
+        restart();
+        return true;
+    }
+
+    public void restart() {
+        game.restart();
+        inputQueue.clear();
+        renderer.publish();
+        coinSpawner.start();
+    }
+
+    // reacts to a key being pressed. the move itself happens on a later tick,
+    // where the game checks it against the walls. every press gets its own
+    // tick, in order. returns whether the whole picture needs drawing again
+    public boolean keyPressed(int key) {
+        if (key == KeyEvent.VK_UP) {
+            inputQueue.press(Game.UP, System.nanoTime());
+        }
+        if (key == KeyEvent.VK_RIGHT) {
+            inputQueue.press(Game.RIGHT, System.nanoTime());
+        }
+        if (key == KeyEvent.VK_DOWN) {
+            inputQueue.press(Game.DOWN, System.nanoTime());
+        }
+        if (key == KeyEvent.VK_LEFT) {
+            inputQueue.press(Game.LEFT, System.nanoTime());
+        }
+        if (key == KeyEvent.VK_H) {
+            // show or hide the arrow to the nearest coin
+            renderer.setShowHint(!renderer.isShowingHint());
+            return true;
+        }
+        if (key == KeyEvent.VK_A) {
+            // let the bot play, or take over again
+            autoPlay = !autoPlay;
+        }
+        if (key == KeyEvent.VK_O) {
+            toggleOverlay();
+            return true;
+        }
+        if (key == KeyEvent.VK_Y) {
+            // the thread running the game checks whether the round is
+            // actually over, see restartIfRequested()
+            restartRequested = true;
+        }
+        if (key == KeyEvent.VK_N) {
+            // the same goes for quitting
+            quitRequested = true;
+        }
+        return false;
+    }
+
+    // shows or hides the performance overlay. the numbers are only measured
+    // while something is looking at them
+    private void toggleOverlay() {
+        boolean show = renderer.getOverlay() == null;
+        renderer.setOverlay(show ? performance : null);
+        performance.setEnabled(show || Boolean.getBoolean("goblin.jmx"));
+    }
+
+    // a new coin was asked for, see CoinSpawner.setSpawnListener()
+    public void setSpawnListener(Runnable spawnListener) {
+        coinSpawner.setSpawnListener(spawnListener);
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    public Renderer getRenderer() {
+        return renderer;
+    }
+
+    public InputQueue getInputQueue() {
+        return inputQueue;
+    }
+
+    public Performance getPerformance() {
+        return performance;
+    }
+
+}
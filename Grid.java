@@ -0,0 +1,230 @@
+import java.util.Arrays;
+
+public class Grid {
+
+    // bit flags stored for every cell of the board
+    public static final byte WALL = 1;
+    public static final byte BOMB = 2;
+    public static final byte COIN = 4;
+    public static final byte SPECIAL_COIN = 8;
+
+    // size of the board in tiles
+    private final int columns;
+    private final int rows;
+    // size of the board in chunks
+    private final int chunkColumns;
+    private final int chunkRows;
+    // the board is split up into square chunks, stored row by row. a chunk is
+    // null until something is placed in it, so a huge mostly empty world only
+    // pays for the parts that are used. looking up a cell is still just a
+    // couple of array reads no matter how many walls, bombs or coins there are
+    private final Chunk[] chunks;
+    // how many coins each new chunk has room for, see Grid(int, int, int)
+    private final int chunkCoinCapacity;
+    // how many of each thing is on the board
+    private int wallCount;
+    private int bombCount;
+    private int coinCount;
+
+    public Grid(int columns, int rows) {
+        this(columns, rows, 0);
+    }
+
+    // maxCoins is the most coins the board ever holds at once. every chunk
+    // starts out with room for twice its share of them, so a tick where the
+    // coins happen to bunch up in one chunk doesn't have to grow its lists
+    public Grid(int columns, int rows, int maxCoins) {
+        this.columns = columns;
+        this.rows = rows;
+        chunkColumns = (columns + Chunk.MASK) >> Chunk.SHIFT;
+        chunkRows = (rows + Chunk.MASK) >> Chunk.SHIFT;
+        chunks = new Chunk[Math.multiplyExact(chunkColumns, chunkRows)];
+        long cells = (long) columns * rows;
+        long share = ((long) maxCoins * Chunk.SIZE * Chunk.SIZE + cells - 1) / cells;
+        chunkCoinCapacity = (int) Math.min(Math.min(Chunk.SIZE * Chunk.SIZE, cells), 2 * share + 16);
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getChunkColumns() {
+        return chunkColumns;
+    }
+
+    public int getChunkRows() {
+        return chunkRows;
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < columns && y >= 0 && y < rows;
+    }
+
+    // returns the chunk at the given chunk position, or null if nothing was
+    // ever placed in it
+    public Chunk getChunk(int chunkX, int chunkY) {
+        return chunks[chunkY * chunkColumns + chunkX];
+    }
+
+    // returns the chunk holding the given cell, or null if it is empty
+    private Chunk chunkAt(int x, int y) {
+        return chunks[(y >> Chunk.SHIFT) * chunkColumns + (x >> Chunk.SHIFT)];
+    }
+
+    // returns the chunk holding the given cell, creating it if needed
+    private Chunk createChunkAt(int x, int y) {
+        int index = (y >> Chunk.SHIFT) * chunkColumns + (x >> Chunk.SHIFT);
+        Chunk chunk = chunks[index];
+        if (chunk == null) {
+            chunk = new Chunk(chunkCoinCapacity);
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    public void addWall(int x, int y) {
+        Chunk chunk = createChunkAt(x, y);
+        chunk.flags[Chunk.cell(x, y)] |= WALL;
+        chunk.getLayout().add(x, y, WALL, Sprites.WALL_ID);
+        wallCount++;
+    }
+
+    public void addBomb(int x, int y) {
+        Chunk chunk = createChunkAt(x, y);
+        chunk.flags[Chunk.cell(x, y)] |= BOMB;
+        chunk.getLayout().add(x, y, BOMB, Sprites.BOMB_ID);
+        bombCount++;
+    }
+
+    // adds a coin and remembers which CoinField slot it is kept in. a cell only
+    // ever holds one coin, so this returns false and does nothing if it has one
+    public boolean addCoin(int x, int y, boolean special, int slot) {
+        Chunk chunk = createChunkAt(x, y);
+        int cell = Chunk.cell(x, y);
+        if ((chunk.flags[cell] & (COIN | SPECIAL_COIN)) != 0) {
+            return false;
+        }
+        byte flag = special ? SPECIAL_COIN : COIN;
+        chunk.flags[cell] |= flag;
+        chunk.addCoin(x, y, flag, special ? Sprites.SPECIAL_COIN_ID : Sprites.COIN_ID, slot);
+        coinCount++;
+        return true;
+    }
+
+    // takes the wall or bomb off the given cell and returns which it was
+    // (WALL or BOMB), or 0 if there was neither. only used while a round is
+    // being set up, see Reachability
+    public byte removeBlocker(int x, int y) {
+        Chunk chunk = chunkAt(x, y);
+        if (chunk == null) {
+            return 0;
+        }
+        int cell = Chunk.cell(x, y);
+        byte flag = (byte) (chunk.flags[cell] & (WALL | BOMB));
+        if (flag == 0) {
+            return 0;
+        }
+        chunk.flags[cell] &= ~(WALL | BOMB);
+        if (flag == WALL) {
+            wallCount--;
+        } else {
+            bombCount--;
+        }
+        Entities layout = chunk.getLayout();
+        layout.remove(layout.indexOf(x, y));
+        return flag;
+    }
+
+    // cells off the edge of the board never hold anything, the player
+    // wraps around to the other side of the board instead
+    public boolean isWall(int x, int y) {
+        return (flagsAt(x, y) & WALL) != 0;
+    }
+
+    public boolean isBomb(int x, int y) {
+        return (flagsAt(x, y) & BOMB) != 0;
+    }
+
+    private byte flagsAt(int x, int y) {
+        if (!contains(x, y)) {
+            return 0;
+        }
+        Chunk chunk = chunkAt(x, y);
+        return chunk == null ? 0 : chunk.flags[Chunk.cell(x, y)];
+    }
+
+    // how many normal coins are on the given cell, which is 0 or 1
+    public int getCoins(int x, int y) {
+        return (flagsAt(x, y) & COIN) != 0 ? 1 : 0;
+    }
+
+    // how many special coins are on the given cell, which is 0 or 1
+    public int getSpecialCoins(int x, int y) {
+        return (flagsAt(x, y) & SPECIAL_COIN) != 0 ? 1 : 0;
+    }
+
+    // returns the CoinField slot of the coin on the given cell, or CoinField.NONE
+    public int getCoinSlot(int x, int y) {
+        if ((flagsAt(x, y) & (COIN | SPECIAL_COIN)) == 0) {
+            return CoinField.NONE;
+        }
+        // the chunk looks the cell up in its own table
+        return chunkAt(x, y).getCoinSlot(Chunk.cell(x, y));
+    }
+
+    // true if anything at all is on the given cell. this is just as quick as
+    // isWall(), however many things are on the board
+    public boolean isOccupied(int x, int y) {
+        return flagsAt(x, y) != 0;
+    }
+
+    // takes the coin off the given cell, if there is one, and returns the
+    // CoinField slot it was kept in, or CoinField.NONE if there wasn't one
+    public int removeCoins(int x, int y) {
+        Chunk chunk = chunkAt(x, y);
+        if (chunk == null) {
+            return CoinField.NONE;
+        }
+        int cell = Chunk.cell(x, y);
+        if ((chunk.flags[cell] & (COIN | SPECIAL_COIN)) == 0) {
+            return CoinField.NONE;
+        }
+        chunk.flags[cell] &= ~(COIN | SPECIAL_COIN);
+        coinCount--;
+        // the chunk finds the coin with one lookup, and moves its last one into the gap
+        return chunk.removeCoin(cell);
+    }
+
+    // a copy of the table of chunks. walls and bombs are only added while a
+    // round is being set up, and clear() throws chunks away instead of
+    // emptying them, so the walls and bombs in the copied chunks never change
+    // again and can be read from another thread, see Snapshot
+    public Chunk[] copyChunks() {
+        return chunks.clone();
+    }
+
+    public int getWallCount() {
+        return wallCount;
+    }
+
+    public int getBombCount() {
+        return bombCount;
+    }
+
+    public int getCoinCount() {
+        return coinCount;
+    }
+
+    public void clear() {
+        // dropping the chunks frees all of their memory
+        Arrays.fill(chunks, null);
+        wallCount = 0;
+        bombCount = 0;
+        coinCount = 0;
+    }
+
+}
@@ -0,0 +1,186 @@
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+
+public class Hud {
+
+    // the text that is shown once the game is over
+    private static final String[] WIN_TEXT = {
+        "  Congratulations, you won!",
+        "Would you like to play again?",
+        "        (Press Y or N)"
+    };
+    private static final String[] LOSE_TEXT = {
+        "  Sorry, you ran out of lives",
+        "Would you like to play again?",
+        "            (Press Y or N)"
+    };
+    // where the end text starts on the board
+    private static final int END_TEXT_X = 300;
+    private static final int END_TEXT_Y = 75;
+    // size of the performance overlay in the top left corner of the board
+    public static final int OVERLAY_WIDTH = 360;
+    public static final int OVERLAY_HEIGHT = 118;
+    private static final Color OVERLAY_BACKGROUND = new Color(0, 0, 0, 160);
+
+    // size of the board the text is drawn on
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    // the text color and fonts
+    private final Color textColor = new Color(30, 175, 155);
+    private final Font scoreFont = new Font("Lato", Font.BOLD, 25);
+    private final Font endFont = new Font("Lato", Font.BOLD, 42);
+    private final Font overlayFont = new Font(Font.MONOSPACED, Font.PLAIN, 13);
+
+    // the score text, already drawn. it only changes when the player picks up
+    // a coin or loses a life, so most frames just copy this image
+    private BufferedImage scoreImage;
+    private int imageScore = -1;
+    private int imageLives = -1;
+    // the end text, already drawn, and whether it is the winning one
+    private BufferedImage endImage;
+    private boolean endImageWon;
+    // the performance overlay, already drawn, and which of the performance
+    // numbers' updates it shows
+    private BufferedImage overlayImage;
+    private long overlayUpdates = -1;
+    // the score text is built in here instead of in a new String every time
+    private final StringBuilder scoreText = new StringBuilder();
+    private char[] scoreChars = new char[32];
+
+    public Hud(int width, int height, int tileSize) {
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+    }
+
+    public void drawScore(Graphics g, int score, int lives, GraphicsConfiguration config, ImageObserver observer) {
+        if (scoreImage == null || score != imageScore || lives != imageLives) {
+            renderScore(score, lives, config);
+        }
+        // the text sits in the bottom row of board tiles
+        g.drawImage(scoreImage, 0, height - tileSize, observer);
+    }
+
+    public void drawEndText(Graphics g, boolean won, GraphicsConfiguration config, ImageObserver observer) {
+        if (endImage == null || won != endImageWon) {
+            renderEndText(won, config);
+        }
+        g.drawImage(endImage, 0, 0, observer);
+    }
+
+    public void drawOverlay(Graphics g, Performance performance, GraphicsConfiguration config, ImageObserver observer) {
+        // the numbers only change once a second, so that's how often the text is redone
+        if (overlayImage == null || performance.getUpdates() != overlayUpdates) {
+            renderOverlay(performance, config);
+        }
+        g.drawImage(overlayImage, 0, 0, observer);
+    }
+
+    private void renderScore(int score, int lives, GraphicsConfiguration config) {
+        // set the text to be displayed
+        scoreText.setLength(0);
+        scoreText.append("Gold - ").append(score).append("   Lives - ").append(lives);
+        int length = scoreText.length();
+        if (length > scoreChars.length) {
+            scoreChars = new char[length];
+        }
+        scoreText.getChars(0, length, scoreChars, 0);
+        if (scoreImage == null) {
+            // here I've sized it to be the entire bottom row of board tiles
+            scoreImage = Sprites.createImage(width, tileSize, Transparency.TRANSLUCENT, config);
+        }
+        Graphics2D g2d = startText(scoreImage, scoreFont);
+        // draw the score in the center of the image
+        // https://stackoverflow.com/a/27740330/4655368
+        FontMetrics metrics = g2d.getFontMetrics();
+        // determine the x coordinate for the text
+        int x = (width - metrics.charsWidth(scoreChars, 0, length)) / 2;
+        // determine the y coordinate for the text
+        // (note we add the ascent, as in java 2d 0 is top of the screen)
+        int y = ((tileSize - metrics.getHeight()) / 2) + metrics.getAscent();
+        // draw the string
+        g2d.drawChars(scoreChars, 0, length, x, y);
+        g2d.dispose();
+
+        imageScore = score;
+        imageLives = lives;
+    }
+
+    private void renderEndText(boolean won, GraphicsConfiguration config) {
+        if (endImage == null) {
+            endImage = Sprites.createImage(width, height, Transparency.TRANSLUCENT, config);
+        }
+        Graphics2D g2d = startText(endImage, endFont);
+        FontMetrics metrics = g2d.getFontMetrics();
+        // draw the lines one below the other
+        String[] lines = won ? WIN_TEXT : LOSE_TEXT;
+        for (int i = 0; i < lines.length; i++) {
+            g2d.drawString(lines[i], END_TEXT_X, END_TEXT_Y + i * metrics.getHeight());
+        }
+        g2d.dispose();
+
+        endImageWon = won;
+    }
+
+    private void renderOverlay(Performance performance, GraphicsConfiguration config) {
+        if (overlayImage == null) {
+            overlayImage = Sprites.createImage(OVERLAY_WIDTH, OVERLAY_HEIGHT, Transparency.TRANSLUCENT, config);
+        }
+        Graphics2D g2d = startText(overlayImage, overlayFont);
+        g2d.setColor(OVERLAY_BACKGROUND);
+        g2d.fillRect(0, 0, OVERLAY_WIDTH, OVERLAY_HEIGHT);
+        g2d.setColor(Color.WHITE);
+        String[] lines = {
+            String.format("fps %d   ticks/s %d", performance.getFramesPerSecond(), performance.getTicksPerSecond()),
+            String.format("tick  p50 %.2f p99 %.2f max %.2f ms",
+                performance.tickPercentile(50) / 1e6, performance.tickPercentile(99) / 1e6,
+                performance.tickPercentile(100) / 1e6),
+            String.format("paint p50 %.2f p99 %.2f max %.2f ms",
+                performance.paintPercentile(50) / 1e6, performance.paintPercentile(99) / 1e6,
+                performance.paintPercentile(100) / 1e6),
+            String.format("repainted %.2f Mpx/s", performance.getPixelsRepaintedPerSecond() / 1e6),
+            String.format("walls %d  bombs %d  coins %d",
+                performance.getWalls(), performance.getBombs(), performance.getCoins()),
+            String.format("allocating %.1f KB/s", performance.getAllocatedBytesPerSecond() / 1024.0)
+        };
+        FontMetrics metrics = g2d.getFontMetrics();
+        for (int i = 0; i < lines.length; i++) {
+            g2d.drawString(lines[i], 8, 6 + metrics.getAscent() + i * metrics.getHeight());
+        }
+        g2d.dispose();
+
+        overlayUpdates = performance.getUpdates();
+    }
+
+    // clears the image and gets it ready to have text drawn on it
+    private Graphics2D startText(BufferedImage image, Font font) {
+        Graphics2D g2d = image.createGraphics();
+        g2d.setComposite(AlphaComposite.Clear);
+        g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g2d.setComposite(AlphaComposite.SrcOver);
+        g2d.setRenderingHint(
+            RenderingHints.KEY_TEXT_ANTIALIASING,
+            RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setRenderingHint(
+            RenderingHints.KEY_RENDERING,
+            RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.setRenderingHint(
+            RenderingHints.KEY_FRACTIONALMETRICS,
+            RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        // set the text color and font
+        g2d.setColor(textColor);
+        g2d.setFont(font);
+        return g2d;
+    }
+
+}
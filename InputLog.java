@@ -0,0 +1,237 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+// a recording of everything that happened in a game that wasn't decided by
+// its seed: which keys were pressed on which tick, when the spawner asked for
+// coins and when a new round was started. together with the game's settings
+// and seed this is enough to play the exact same game again, see Replay
+public class InputLog {
+
+    // what kind of thing happened
+    public static final int STEP = 0;
+    public static final int RESTART = 1;
+
+    // first line of every saved log, so we don't try to read some other file
+    private static final String HEADER = "goblin-input-log 1";
+
+    // the settings the recorded game was started with
+    private final GameConfig config;
+    // the level file the game was played on, or null for a random board. the
+    // replay reads the level again, so it has to still be the same file
+    private final Path level;
+    // when the recording started, so events can be stored as time since the start
+    private final long startNanos = System.nanoTime();
+    // one entry per event, in the order they happened
+    private int[] types = new int[64];
+    private long[] ticks = new long[64];
+    private long[] times = new long[64];
+    private int[] inputs = new int[64];
+    private int[] spawns = new int[64];
+    private int count;
+    // how the game ended up, filled in by finish()
+    private long finalTicks = -1;
+    private int finalScore;
+    private int finalLives;
+
+    public InputLog(GameConfig config) {
+        this(config, null);
+    }
+
+    public InputLog(GameConfig config, Path level) {
+        this.config = config;
+        this.level = level == null ? null : level.toAbsolutePath();
+    }
+
+    // called by the game on any tick where a key was pressed or coins were spawned
+    public synchronized void step(long tick, int input, int spawnCount) {
+        add(STEP, tick, System.nanoTime() - startNanos, input, spawnCount);
+    }
+
+    // called by the game when a new round starts, after the given tick
+    public synchronized void restart(long tick) {
+        add(RESTART, tick, System.nanoTime() - startNanos, Game.NONE, 0);
+    }
+
+    private void add(int type, long tick, long time, int input, int spawnCount) {
+        if (count == types.length) {
+            int size = count * 2;
+            types = Arrays.copyOf(types, size);
+            ticks = Arrays.copyOf(ticks, size);
+            times = Arrays.copyOf(times, size);
+            inputs = Arrays.copyOf(inputs, size);
+            spawns = Arrays.copyOf(spawns, size);
+        }
+        types[count] = type;
+        ticks[count] = tick;
+        times[count] = time;
+        inputs[count] = input;
+        spawns[count] = spawnCount;
+        count++;
+    }
+
+    // writes down where the game ended up, so a replay can check it gets the same result
+    public synchronized void finish(Game game) {
+        finalTicks = game.getTicks();
+        finalScore = game.getScore();
+        finalLives = game.getLives();
+    }
+
+    public void save(Path path) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            write(out);
+        }
+    }
+
+    private synchronized void write(BufferedWriter out) throws IOException {
+        out.write(HEADER);
+        out.newLine();
+        out.write("config " + config.getColumns() + " " + config.getRows()
+            + " " + config.getNumWalls() + " " + config.getNumBombs() + " " + config.getNumCoins()
+            + " " + config.getSeed() + " " + config.getMaxCoins()
+            + " " + config.getCoinTimeToLive() + " " + config.getSpecialCoinTimeToLive()
+            + " " + CoinField.policyName(config.getEvictionPolicy())
+            + " " + config.getSpecialCoinOdds() + " " + config.getSpecialCoinChance());
+        out.newLine();
+        if (level != null) {
+            out.write("level " + level);
+            out.newLine();
+        }
+        for (int i = 0; i < count; i++) {
+            if (types[i] == STEP) {
+                out.write("step " + ticks[i] + " " + times[i] + " " + inputs[i] + " " + spawns[i]);
+            } else {
+                out.write("restart " + ticks[i] + " " + times[i]);
+            }
+            out.newLine();
+        }
+        if (finalTicks >= 0) {
+            out.write("end " + finalTicks + " " + finalScore + " " + finalLives);
+            out.newLine();
+        }
+    }
+
+    public static InputLog load(Path path) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(in.readLine())) {
+                throw new IOException(path + " is not an input log");
+            }
+            InputLog log = null;
+            GameConfig config = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.trim().split(" ");
+                try {
+                    if (parts[0].equals("config")) {
+                        config = new GameConfig(
+                            Integer.parseInt(parts[1]),
+                            Integer.parseInt(parts[2]),
+                            Integer.parseInt(parts[3]),
+                            Integer.parseInt(parts[4]),
+                            Integer.parseInt(parts[5]),
+                            GameConfig.DEFAULT_TILE_SIZE,
+                            Game.COLUMNS,
+                            Game.ROWS,
+                            Long.parseLong(parts[6])
+                        );
+                        // logs from before coins had limits leave these off
+                        if (parts.length > 7) {
+                            config = config.withCoinLimits(
+                                Integer.parseInt(parts[7]),
+                                Long.parseLong(parts[8]),
+                                Long.parseLong(parts[9]),
+                                CoinField.parsePolicy(parts[10])
+                            );
+                        }
+                        // and from before the special coin odds could be changed
+                        if (parts.length > 11) {
+                            config = config.withSpecialCoinOdds(
+                                Integer.parseInt(parts[11]),
+                                Integer.parseInt(parts[12])
+                            );
+                        }
+                        log = new InputLog(config);
+                    } else if (log == null) {
+                        throw new IOException(path + " has no config line");
+                    } else if (parts[0].equals("level")) {
+                        // the path is the rest of the line, spaces and all
+                        if (log.size() > 0) {
+                            throw new IOException("the level line in " + path + " should come right after the config line");
+                        }
+                        log = new InputLog(config, Paths.get(line.trim().substring("level ".length())));
+                    } else if (parts[0].equals("step")) {
+                        log.add(STEP, Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+                            Integer.parseInt(parts[3]), Integer.parseInt(parts[4]));
+                    } else if (parts[0].equals("restart")) {
+                        log.add(RESTART, Long.parseLong(parts[1]), Long.parseLong(parts[2]), Game.NONE, 0);
+                    } else if (parts[0].equals("end")) {
+                        log.finalTicks = Long.parseLong(parts[1]);
+                        log.finalScore = Integer.parseInt(parts[2]);
+                        log.finalLives = Integer.parseInt(parts[3]);
+                    }
+                } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException exc) {
+                    throw new IOException("bad line in " + path + ": " + line, exc);
+                }
+            }
+            if (log == null) {
+                throw new IOException(path + " has no config line");
+            }
+            return log;
+        }
+    }
+
+    public GameConfig getConfig() {
+        return config;
+    }
+
+    // the level the game was played on, or null if it was a random board
+    public Path getLevel() {
+        return level;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized int getType(int i) {
+        return types[i];
+    }
+
+    public synchronized long getTick(int i) {
+        return ticks[i];
+    }
+
+    public synchronized long getTime(int i) {
+        return times[i];
+    }
+
+    public synchronized int getInput(int i) {
+        return inputs[i];
+    }
+
+    public synchronized int getSpawns(int i) {
+        return spawns[i];
+    }
+
+    public boolean isFinished() {
+        return finalTicks >= 0;
+    }
+
+    public long getFinalTicks() {
+        return finalTicks;
+    }
+
+    public int getFinalScore() {
+        return finalScore;
+    }
+
+    public int getFinalLives() {
+        return finalLives;
+    }
+
+}
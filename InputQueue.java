@@ -0,0 +1,115 @@
+// the arrow keys pressed since the game last took one, oldest first, each
+// with the time it was pressed. the game takes one press per tick, so two
+// keys pressed quickly inside the same tick become two moves on two ticks
+// instead of the second one replacing the first.
+//
+// it also measures how long it takes from a key being pressed until the
+// first frame that shows the move. keys are pressed on the Swing thread and
+// taken on the game thread, so every method here is synchronized
+public class InputQueue {
+
+    // how many presses can wait at once. that's over a second and a half of
+    // ticks, so only holding down every key at once fills it up
+    public static final int CAPACITY = 64;
+    // how many of the most recent latencies are kept
+    private static final int WINDOW = 1024;
+
+    // the waiting presses, used as a ring buffer
+    private final int[] inputs = new int[CAPACITY];
+    private final long[] times = new long[CAPACITY];
+    private int head;
+    private int size;
+    // when the press take() handed out last was made, or 0 if it had none
+    private long takenTime;
+    // when the moves that have been made but not drawn yet were pressed
+    private final long[] unshown = new long[CAPACITY];
+    private int unshownCount;
+    // the most recent key to frame latencies
+    private final RecentTimes latencies = new RecentTimes(WINDOW);
+    private long presses;
+    private long dropped;
+
+    // call this when an arrow key is pressed, with System.nanoTime()
+    public synchronized void press(int input, long time) {
+        presses++;
+        if (size == CAPACITY) {
+            dropped++;
+            return;
+        }
+        int tail = (head + size) % CAPACITY;
+        inputs[tail] = input;
+        times[tail] = time;
+        size++;
+    }
+
+    // returns the oldest press (like Game.UP), or Game.NONE if there is none.
+    // call this once per tick
+    public synchronized int take() {
+        if (size == 0) {
+            takenTime = 0;
+            return Game.NONE;
+        }
+        int input = inputs[head];
+        takenTime = times[head];
+        head = (head + 1) % CAPACITY;
+        size--;
+        return input;
+    }
+
+    // call this after the tick that used the press from take(), saying
+    // whether the player actually moved. only moves show up on screen, so a
+    // key that walked into a wall isn't timed
+    public synchronized void stepped(boolean moved) {
+        if (moved && takenTime != 0 && unshownCount < CAPACITY) {
+            unshown[unshownCount++] = takenTime;
+        }
+        takenTime = 0;
+    }
+
+    // call this once a frame has been drawn, with System.nanoTime()
+    public synchronized void frameShown(long now) {
+        for (int i = 0; i < unshownCount; i++) {
+            latencies.add(now - unshown[i]);
+        }
+        unshownCount = 0;
+    }
+
+    // forgets every waiting press, like when a new round starts or the bot
+    // takes over
+    public synchronized void clear() {
+        size = 0;
+        unshownCount = 0;
+        takenTime = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // returns the given percentile (0-100) of the recent latencies in nanoseconds
+    public synchronized long latencyPercentile(double percentile) {
+        return latencies.percentile(percentile);
+    }
+
+    public synchronized long getPresses() {
+        return presses;
+    }
+
+    // presses thrown away because the queue was full
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "presses %d, dropped %d, key to frame p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+            getPresses(),
+            getDropped(),
+            latencyPercentile(50) / 1e6,
+            latencyPercentile(99) / 1e6,
+            latencyPercentile(100) / 1e6
+        );
+    }
+
+}
@@ -0,0 +1,457 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// a hand made board, read from a file instead of placed at random. a level
+// says how big the world is and where every wall, bomb and coin goes. the
+// player still starts in the top left corner, so that tile can't be a wall or
+// a bomb. everything else (tile size, view, coin limits and so on) comes from
+// the usual settings. start the game with -Dgoblin.level=<file> to play one.
+//
+// a level can be stored two ways. the text form is for editing by hand:
+//
+//     goblin-level 20 15
+//     ....#...............
+//     .o..#....*.....$....
+//     ...
+//
+// the first line gives the columns and rows, then there is one line per row
+// with one character per tile: '.' (or a space) for floor, '#' for a wall,
+// '*' for a bomb, 'o' for a coin and '$' for a special coin. short lines and
+// missing rows at the end are floor.
+//
+// the binary form is for big worlds, and stores runs of the same tile:
+//
+//     int magic, int version, int columns, int rows
+//     then runs, row by row: byte tile (the same characters as above), and
+//     how many tiles in a row, as a varint (7 bits a byte, lowest first)
+//
+// the runs add up to exactly columns * rows tiles. neither form is ever read
+// into memory in one go. the text is read a buffer at a time, and the binary
+// file is mapped into memory, so each run goes straight from the page cache
+// onto the board. `java Level <from> <to>` converts between them
+public class Level {
+
+    // what the tiles are stored as, in both forms
+    public static final char FLOOR = '.';
+    public static final char WALL = '#';
+    public static final char BOMB = '*';
+    public static final char COIN = 'o';
+    public static final char SPECIAL_COIN = '$';
+
+    private static final String TEXT_HEADER = "goblin-level";
+    private static final int MAGIC = 0x474F424C;
+    private static final int VERSION = 1;
+    // how many characters or bytes are read or written at a time
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // gets a level's tiles one run at a time, in order. start is the number
+    // of the first tile in the run, counted row by row (y * columns + x)
+    interface TileSink {
+        void run(char tile, int start, int length) throws IOException;
+    }
+
+    private final Path path;
+    private final boolean binary;
+    private final int columns;
+    private final int rows;
+
+    private Level(Path path, boolean binary, int columns, int rows) {
+        this.path = path;
+        this.binary = binary;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    // reads just enough of the file at path to know its form and size. the
+    // tiles are only read when a game is started on it
+    public static Level open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(16);
+            while (start.hasRemaining() && channel.read(start) >= 0) {
+                // keep reading until we have the header or the file ends
+            }
+            start.flip();
+            if (start.remaining() == 16 && start.getInt() == MAGIC) {
+                int version = start.getInt();
+                if (version != VERSION) {
+                    throw new IOException("level version " + version + " is not supported");
+                }
+                return checked(path, true, start.getInt(), start.getInt());
+            }
+        }
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return checked(path, false, in.readLine());
+        }
+    }
+
+    private static Level checked(Path path, boolean binary, String header) throws IOException {
+        String[] parts = header == null ? new String[0] : header.trim().split("\\s+");
+        if (parts.length != 3 || !parts[0].equals(TEXT_HEADER)) {
+            throw new IOException("not a level, the first line should be \"" + TEXT_HEADER + " <columns> <rows>\"");
+        }
+        try {
+            return checked(path, binary, Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+        } catch (NumberFormatException exc) {
+            throw new IOException("bad level size \"" + header + "\"");
+        }
+    }
+
+    private static Level checked(Path path, boolean binary, int columns, int rows) throws IOException {
+        if (columns < 1 || rows < 1 || (long) columns * rows > Integer.MAX_VALUE) {
+            throw new IOException("a level can't be " + columns + "x" + rows + " tiles");
+        }
+        return new Level(path, binary, columns, rows);
+    }
+
+    // starts a game on the level at path, with the rest of the settings from
+    // the system properties like a random game
+    public static Game load(Path path) throws IOException {
+        Level level = open(path);
+        return level.start(GameConfig.fromSystemProperties(level.columns, level.rows));
+    }
+
+    // starts a game on this level. config has to be for a world the size of the level
+    public Game start(GameConfig config) throws IOException {
+        if (config.getColumns() != columns || config.getRows() != rows) {
+            throw new IllegalArgumentException("the settings are for a different size of world than the level");
+        }
+        Game game = new Game(config, false);
+        fill(game);
+        // a new round puts the level back the way it was
+        game.setLevel(this);
+        return game;
+    }
+
+    // puts the level's walls, bombs and coins on the board of a game with
+    // nothing on it yet. coins past the game's coin limit push out the ones
+    // before them, like spawned coins do
+    void fill(Game game) throws IOException {
+        Grid grid = game.getGrid();
+        read((tile, start, length) -> {
+            if (tile == FLOOR) {
+                return;
+            }
+            if (start == 0 && (tile == WALL || tile == BOMB)) {
+                throw new IOException("the player starts on the top left tile, so it can't be a wall or a bomb");
+            }
+            for (int i = start; i < start + length; i++) {
+                int x = i % columns;
+                int y = i / columns;
+                if (tile == WALL) {
+                    grid.addWall(x, y);
+                } else if (tile == BOMB) {
+                    grid.addBomb(x, y);
+                } else {
+                    game.placeCoin(x, y, tile == SPECIAL_COIN);
+                }
+            }
+        });
+    }
+
+    // hands every tile of the level to sink, in order
+    void read(TileSink sink) throws IOException {
+        if (binary) {
+            readBinary(sink);
+        } else {
+            readText(sink);
+        }
+    }
+
+    private void readBinary(TileSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            // the header was checked by open()
+            in.position(16);
+            int tiles = columns * rows;
+            int start = 0;
+            try {
+                while (start < tiles) {
+                    char tile = (char) (in.get() & 0xFF);
+                    if (!isTile(tile) || tile == ' ') {
+                        throw new IOException("unknown tile " + (int) tile + " at byte " + (in.position() - 1));
+                    }
+                    int length = readLength(in);
+                    if (length < 1 || length > tiles - start) {
+                        throw new IOException("a run of " + length + " tiles doesn't fit in the level");
+                    }
+                    sink.run(tile, start, length);
+                    start += length;
+                }
+            } catch (BufferUnderflowException exc) {
+                // every run is checked above, so the only thing left that can
+                // go wrong is the file ending before the runs cover the board
+                throw new IOException("bad level " + path + ": it ends after " + start + " of " + tiles + " tiles", exc);
+            }
+        }
+    }
+
+    private static int readLength(ByteBuffer in) {
+        int length = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.get();
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return length;
+            }
+        }
+        // more than 5 bytes is never a length we wrote
+        return -1;
+    }
+
+    private void readText(TileSink sink) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            // the header was checked by open()
+            in.readLine();
+            Runs runs = new Runs(sink);
+            char[] buffer = new char[BUFFER_SIZE];
+            int x = 0;
+            int y = 0;
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                for (int i = 0; i < count; i++) {
+                    char c = buffer[i];
+                    if (c == '\r') {
+                        continue;
+                    }
+                    if (y >= rows) {
+                        // blank lines after the last row are fine
+                        if (!Character.isWhitespace(c)) {
+                            throw new IOException("the level has more than " + rows + " rows");
+                        }
+                        continue;
+                    }
+                    if (c == '\n') {
+                        // the rest of a short line is floor
+                        runs.add(FLOOR, columns - x);
+                        x = 0;
+                        y++;
+                        continue;
+                    }
+                    if (!isTile(c)) {
+                        throw new IOException("unknown tile '" + c + "' on row " + (y + 1) + ", column " + (x + 1));
+                    }
+                    if (x == columns) {
+                        throw new IOException("row " + (y + 1) + " is longer than " + columns + " tiles");
+                    }
+                    runs.add(c == ' ' ? FLOOR : c, 1);
+                    x++;
+                }
+            }
+            // the last line may not end with a newline, and missing rows are floor
+            if (y < rows) {
+                runs.add(FLOOR, (rows - y) * columns - x);
+            }
+            runs.flush();
+        }
+    }
+
+    private static boolean isTile(char c) {
+        return c == FLOOR || c == ' ' || c == WALL || c == BOMB || c == COIN || c == SPECIAL_COIN;
+    }
+
+    // joins tiles in a row that are the same into one run before they're
+    // handed to a sink
+    private static class Runs {
+        private final TileSink sink;
+        private char tile = FLOOR;
+        private int start;
+        private int length;
+
+        Runs(TileSink sink) {
+            this.sink = sink;
+        }
+
+        void add(char next, int count) throws IOException {
+            if (count == 0) {
+                return;
+            }
+            if (next != tile && length > 0) {
+                flush();
+            }
+            tile = next;
+            length += count;
+        }
+
+        void flush() throws IOException {
+            if (length > 0) {
+                sink.run(tile, start, length);
+                start += length;
+                length = 0;
+            }
+        }
+    }
+
+    // saves the walls, bombs and coins of a game as a level, in the binary
+    // form or the text form. a good way to start a level is from a random board
+    public static void save(Game game, Path path, boolean binary) throws IOException {
+        Grid grid = game.getGrid();
+        int columns = grid.getColumns();
+        int rows = grid.getRows();
+        try (LevelWriter writer = binary ? new BinaryWriter(path, columns, rows) : new TextWriter(path, columns, rows)) {
+            Runs runs = new Runs(writer);
+            for (int y = 0; y < rows; y++) {
+                for (int x = 0; x < columns; x++) {
+                    runs.add(tileAt(grid, x, y), 1);
+                }
+            }
+            runs.flush();
+        }
+    }
+
+    private static char tileAt(Grid grid, int x, int y) {
+        if (grid.isWall(x, y)) {
+            return WALL;
+        }
+        if (grid.isBomb(x, y)) {
+            return BOMB;
+        }
+        if (grid.getSpecialCoins(x, y) > 0) {
+            return SPECIAL_COIN;
+        }
+        if (grid.getCoins(x, y) > 0) {
+            return COIN;
+        }
+        return FLOOR;
+    }
+
+    // writes this level to path in the other form, or the same one, a run at a time
+    public void convert(Path to, boolean toBinary) throws IOException {
+        if (Files.exists(to) && Files.isSameFile(path, to)) {
+            throw new IOException("can't write a level over itself");
+        }
+        try (LevelWriter writer = toBinary ? new BinaryWriter(to, columns, rows) : new TextWriter(to, columns, rows)) {
+            read(writer);
+        }
+    }
+
+    private interface LevelWriter extends TileSink, AutoCloseable {
+        @Override
+        void close() throws IOException;
+    }
+
+    // writes runs out as text, breaking them up into rows
+    private static class TextWriter implements LevelWriter {
+        private final BufferedWriter out;
+        private final int columns;
+        private int x;
+
+        TextWriter(Path path, int columns, int rows) throws IOException {
+            out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            this.columns = columns;
+            out.write(TEXT_HEADER + " " + columns + " " + rows);
+            out.newLine();
+        }
+
+        @Override
+        public void run(char tile, int start, int length) throws IOException {
+            while (length > 0) {
+                int count = Math.min(length, columns - x);
+                for (int i = 0; i < count; i++) {
+                    out.write(tile);
+                }
+                x += count;
+                length -= count;
+                if (x == columns) {
+                    out.newLine();
+                    x = 0;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    // writes runs out in the binary form, a buffer at a time
+    private static class BinaryWriter implements LevelWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        BinaryWriter(Path path, int columns, int rows) throws IOException {
+            channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(columns);
+            buffer.putInt(rows);
+        }
+
+        @Override
+        public void run(char tile, int start, int length) throws IOException {
+            // a tile and the longest varint
+            if (buffer.remaining() < 6) {
+                drain();
+            }
+            buffer.put((byte) tile);
+            while (length >= 0x80) {
+                buffer.put((byte) (length | 0x80));
+                length >>>= 7;
+            }
+            buffer.put((byte) length);
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // java Level <from> <to> converts a level, to the text form if <to> ends
+    // in .txt and to the binary form otherwise. with only <to>, it saves a
+    // random board made with the usual goblin.* settings to start a level from
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: java Level [<from>] <to>");
+            System.exit(1);
+        }
+        Path to = Paths.get(args[args.length - 1]);
+        boolean toBinary = !to.getFileName().toString().endsWith(".txt");
+        try {
+            if (args.length == 1) {
+                save(new Game(GameConfig.fromSystemProperties()), to, toBinary);
+            } else {
+                open(Paths.get(args[0])).convert(to, toBinary);
+            }
+        } catch (IOException exc) {
+            System.out.println("Error writing level: " + exc.getMessage());
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.JPanel;
+
+// shown in the window while App loads the images and sets up the board in the
+// background, so the window shows up straight away instead of staying blank
+// until everything is ready. it draws a bar that fills up as each step finishes
+public class LoadingScreen extends JPanel {
+
+    // size of the progress bar
+    private static final int BAR_WIDTH = 400;
+    private static final int BAR_HEIGHT = 24;
+    // suppress serialization warning
+    private static final long serialVersionUID = 2750913388210355874L;
+
+    private final Color textColor = new Color(30, 175, 155);
+    private final Font font = new Font("Lato", Font.BOLD, 25);
+    // how many steps there are and how many have finished. steps finish on
+    // the loading threads, so this is atomic
+    private final int steps;
+    private final AtomicInteger finished = new AtomicInteger();
+    // called after the first time the screen is drawn, or null
+    private Runnable firstFrameListener;
+
+    public LoadingScreen(int width, int height, int steps) {
+        this.steps = steps;
+        setPreferredSize(new Dimension(width, height));
+        setBackground(Renderer.BACKGROUND_COLOR);
+    }
+
+    // call this from any thread when a step has finished
+    public void stepFinished() {
+        finished.incrementAndGet();
+        repaint();
+    }
+
+    public void setFirstFrameListener(Runnable firstFrameListener) {
+        this.firstFrameListener = firstFrameListener;
+    }
+
+    @Override
+    public void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        int x = (getWidth() - BAR_WIDTH) / 2;
+        int y = (getHeight() - BAR_HEIGHT) / 2;
+        g2d.setColor(textColor);
+        g2d.setFont(font);
+        FontMetrics metrics = g2d.getFontMetrics();
+        String text = "Loading...";
+        g2d.drawString(text, (getWidth() - metrics.stringWidth(text)) / 2, y - metrics.getDescent() - 10);
+
+        // the outline of the bar, filled in as far as we've got
+        int filled = BAR_WIDTH * Math.min(finished.get(), steps) / steps;
+        g2d.fillRect(x, y, filled, BAR_HEIGHT);
+        g2d.drawRect(x, y, BAR_WIDTH, BAR_HEIGHT);
+
+        if (firstFrameListener != null) {
+            firstFrameListener.run();
+            firstFrameListener = null;
+        }
+    }
+
+}
@@ -0,0 +1,376 @@
+import java.util.Arrays;
+
+// finds the way around the board for the bot and the hint arrow. it keeps a
+// distance field: for every tile, how many moves it takes to reach the
+// nearest coin without walking into a wall or a bomb. the field is worked out
+// in full once per round and after that only the tiles a new or collected
+// coin actually changes are updated, so asking for the next move towards the
+// nearest coin is a single array read however big the board is.
+//
+// it can also find the shortest way to one particular tile with A*, which
+// doesn't need the field at all.
+//
+// moves wrap around the edges of the board just like the player does. the
+// game tells the pathfinder about every coin that comes or goes, see
+// Game.getPathfinder()
+public class Pathfinder {
+
+    // distance of a tile that can't reach any coin
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    // the four moves, in the order they are tried
+    private static final int[] DIRECTIONS = {Game.UP, Game.RIGHT, Game.DOWN, Game.LEFT};
+
+    private final Game game;
+    private final int columns;
+    private final int rows;
+    // moves from each tile to the nearest coin, stored row by row
+    private final int[] distances;
+    // tiles with a wall or bomb on them, which are never walked through
+    private final boolean[] blocked;
+    // the layout version the field was worked out for. once the game starts a
+    // new round the field is redone in full the next time it's needed
+    private long version = -1;
+    // scratch space for the searches, kept between calls
+    private final int[] queue;
+    private final boolean[] marked;
+    private int[] region = new int[64];
+    private long[] heap = new long[64];
+    private int heapSize;
+    // scratch space for A*, only made the first time it's used
+    private int[] costs;
+    private int[] visits;
+    private byte[] arrivedBy;
+    private int visit;
+
+    public Pathfinder(Game game) {
+        this.game = game;
+        columns = game.getColumns();
+        rows = game.getRows();
+        int cells = Math.multiplyExact(columns, rows);
+        distances = new int[cells];
+        blocked = new boolean[cells];
+        queue = new int[cells];
+        marked = new boolean[cells];
+    }
+
+    // returns the move (like Game.UP) that takes a player on the given tile
+    // one step closer to the nearest coin, or Game.NONE if there is no coin
+    // it can reach or it is already standing on one
+    public int nextStep(int x, int y) {
+        update();
+        int cell = y * columns + x;
+        int distance = distances[cell];
+        if (distance == 0 || distance == UNREACHABLE) {
+            return Game.NONE;
+        }
+        for (int direction : DIRECTIONS) {
+            if (distances[neighbour(cell, direction)] == distance - 1) {
+                return direction;
+            }
+        }
+        return Game.NONE;
+    }
+
+    // how many moves it takes to get from the given tile to the nearest coin,
+    // or -1 if no coin can be reached from there
+    public int getDistance(int x, int y) {
+        update();
+        int distance = distances[y * columns + x];
+        return distance == UNREACHABLE ? -1 : distance;
+    }
+
+    // called by the game once a coin has been put on the given tile
+    public void coinAdded(int x, int y) {
+        if (version != game.getLayoutVersion()) {
+            // the whole field is redone on the next question anyway
+            return;
+        }
+        int cell = y * columns + x;
+        distances[cell] = 0;
+        // spread out from the new coin for as long as it is the nearest one.
+        // every tile further away than that keeps the distance it had
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = cell;
+        while (head < tail) {
+            int current = queue[head++];
+            int next = distances[current] + 1;
+            for (int direction : DIRECTIONS) {
+                int other = neighbour(current, direction);
+                if (!blocked[other] && next < distances[other]) {
+                    distances[other] = next;
+                    queue[tail++] = other;
+                }
+            }
+        }
+    }
+
+    // called by the game once the coin on the given tile has been collected
+    // or has vanished
+    public void coinRemoved(int x, int y) {
+        if (version != game.getLayoutVersion()) {
+            return;
+        }
+        int cell = y * columns + x;
+        // first find every tile whose shortest way led through this coin.
+        // a tile only needs fixing if none of its neighbours one step closer
+        // to a coin is still fine. this goes out from the coin one step at a
+        // time, so a tile's closer neighbours are always sorted out before it
+        int regionSize = 0;
+        int head = 0;
+        int tail = 0;
+        marked[cell] = true;
+        regionSize = addToRegion(regionSize, cell);
+        queue[tail++] = cell;
+        while (head < tail) {
+            int current = queue[head++];
+            for (int direction : DIRECTIONS) {
+                int other = neighbour(current, direction);
+                if (!blocked[other] && !marked[other]
+                        && distances[other] == distances[current] + 1 && !isSupported(other)) {
+                    marked[other] = true;
+                    regionSize = addToRegion(regionSize, other);
+                    queue[tail++] = other;
+                }
+            }
+        }
+
+        // then give each of those tiles the best distance its unaffected
+        // neighbours offer, and spread the new distances through the region
+        // nearest first
+        for (int i = 0; i < regionSize; i++) {
+            distances[region[i]] = UNREACHABLE;
+        }
+        heapSize = 0;
+        for (int i = 0; i < regionSize; i++) {
+            int current = region[i];
+            int best = UNREACHABLE;
+            for (int direction : DIRECTIONS) {
+                int other = neighbour(current, direction);
+                if (!marked[other] && distances[other] != UNREACHABLE) {
+                    best = Math.min(best, distances[other] + 1);
+                }
+            }
+            if (best != UNREACHABLE) {
+                distances[current] = best;
+                push(best, current);
+            }
+        }
+        while (heapSize > 0) {
+            long entry = pop();
+            int distance = (int) (entry >>> 32);
+            int current = (int) entry;
+            if (distance != distances[current]) {
+                // this tile was reached by a shorter way since it was queued
+                continue;
+            }
+            for (int direction : DIRECTIONS) {
+                int other = neighbour(current, direction);
+                if (!blocked[other] && distance + 1 < distances[other]) {
+                    distances[other] = distance + 1;
+                    push(distance + 1, other);
+                }
+            }
+        }
+        for (int i = 0; i < regionSize; i++) {
+            marked[region[i]] = false;
+        }
+    }
+
+    // true if the tile has a neighbour one step closer to a coin that isn't
+    // being fixed itself, so its distance is still right
+    private boolean isSupported(int cell) {
+        int closer = distances[cell] - 1;
+        for (int direction : DIRECTIONS) {
+            int other = neighbour(cell, direction);
+            if (!blocked[other] && !marked[other] && distances[other] == closer) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int addToRegion(int regionSize, int cell) {
+        if (regionSize == region.length) {
+            region = Arrays.copyOf(region, regionSize * 2);
+        }
+        region[regionSize] = cell;
+        return regionSize + 1;
+    }
+
+    // returns the moves (like Game.UP) that take the player from one tile to
+    // another the quickest way, or null if there is no way there. this is A*,
+    // guided by how far apart the tiles are with the board wrapping around
+    public int[] findPath(int fromX, int fromY, int toX, int toY) {
+        update();
+        if (costs == null) {
+            costs = new int[distances.length];
+            visits = new int[distances.length];
+            arrivedBy = new byte[distances.length];
+        }
+        // every search marks the tiles it reached with its own number, so the
+        // arrays never have to be cleared
+        visit++;
+        if (visit == 0) {
+            Arrays.fill(visits, 0);
+            visit = 1;
+        }
+        int start = fromY * columns + fromX;
+        int target = toY * columns + toX;
+        if (blocked[target]) {
+            return null;
+        }
+        heapSize = 0;
+        costs[start] = 0;
+        visits[start] = visit;
+        push(estimate(start, target), start);
+        while (heapSize > 0) {
+            long entry = pop();
+            int current = (int) entry;
+            if ((int) (entry >>> 32) != costs[current] + estimate(current, target)) {
+                continue;
+            }
+            if (current == target) {
+                return retrace(start, target);
+            }
+            int cost = costs[current] + 1;
+            for (int direction : DIRECTIONS) {
+                int other = neighbour(current, direction);
+                if (blocked[other]) {
+                    continue;
+                }
+                if (visits[other] != visit || cost < costs[other]) {
+                    visits[other] = visit;
+                    costs[other] = cost;
+                    arrivedBy[other] = (byte) direction;
+                    push(cost + estimate(other, target), other);
+                }
+            }
+        }
+        return null;
+    }
+
+    private int[] retrace(int start, int target) {
+        int[] path = new int[costs[target]];
+        int cell = target;
+        for (int i = path.length - 1; i >= 0; i--) {
+            path[i] = arrivedBy[cell];
+            cell = neighbour(cell, opposite(arrivedBy[cell]));
+        }
+        return path;
+    }
+
+    // the fewest moves between two tiles if nothing was in the way
+    private int estimate(int cell, int target) {
+        int dx = Math.abs(cell % columns - target % columns);
+        int dy = Math.abs(cell / columns - target / columns);
+        return Math.min(dx, columns - dx) + Math.min(dy, rows - dy);
+    }
+
+    private static int opposite(int direction) {
+        if (direction == Game.UP) {
+            return Game.DOWN;
+        } else if (direction == Game.DOWN) {
+            return Game.UP;
+        } else if (direction == Game.LEFT) {
+            return Game.RIGHT;
+        }
+        return Game.LEFT;
+    }
+
+    // the tile one move away in the given direction, wrapping around the edges
+    private int neighbour(int cell, int direction) {
+        int x = cell % columns;
+        int y = cell / columns;
+        if (direction == Game.UP) {
+            y = y == 0 ? rows - 1 : y - 1;
+        } else if (direction == Game.DOWN) {
+            y = y == rows - 1 ? 0 : y + 1;
+        } else if (direction == Game.LEFT) {
+            x = x == 0 ? columns - 1 : x - 1;
+        } else {
+            x = x == columns - 1 ? 0 : x + 1;
+        }
+        return y * columns + x;
+    }
+
+    // works out the whole field again if the walls and bombs changed
+    private void update() {
+        if (version != game.getLayoutVersion()) {
+            rebuild();
+        }
+    }
+
+    // works out the distance from every tile to its nearest coin by searching
+    // outwards from all the coins at once
+    public void rebuild() {
+        Grid grid = game.getGrid();
+        Arrays.fill(distances, UNREACHABLE);
+        int tail = 0;
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                int cell = y * columns + x;
+                blocked[cell] = grid.isWall(x, y) || grid.isBomb(x, y);
+                if (grid.getCoins(x, y) + grid.getSpecialCoins(x, y) > 0) {
+                    distances[cell] = 0;
+                    queue[tail++] = cell;
+                }
+            }
+        }
+        int head = 0;
+        while (head < tail) {
+            int current = queue[head++];
+            int next = distances[current] + 1;
+            for (int direction : DIRECTIONS) {
+                int other = neighbour(current, direction);
+                if (!blocked[other] && distances[other] == UNREACHABLE) {
+                    distances[other] = next;
+                    queue[tail++] = other;
+                }
+            }
+        }
+        version = game.getLayoutVersion();
+    }
+
+    // a small binary heap of (distance, tile) pairs packed into longs, so the
+    // smallest distance comes out first without boxing anything
+    private void push(int distance, int cell) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        long entry = ((long) distance << 32) | cell;
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (heap[parent] <= entry) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    private long pop() {
+        long top = heap[0];
+        long entry = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (entry <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = entry;
+        return top;
+    }
+
+}
@@ -0,0 +1,224 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// measures how long ticks and paints take while the game runs, for the
+// overlay (press O) and for JMX (start with -Dgoblin.jmx=true). it keeps the
+// most recent tick and paint times to work out percentiles, and once a second
+// works out the frame rate, the tick rate, how many pixels were repainted,
+// how many walls, bombs and coins there are, and how fast the game thread is
+// allocating memory.
+//
+// while it's turned off start() returns 0 and the end methods return straight
+// away, so it costs nothing more than reading one field per tick and paint
+public class Performance implements PerformanceMBean {
+
+    // how many of the most recent tick and paint times are kept
+    private static final int WINDOW = 1024;
+    private static final long SECOND = 1_000_000_000L;
+
+    private volatile boolean enabled;
+    // the most recent tick and paint times
+    private final RecentTimes ticks = new RecentTimes(WINDOW);
+    private final RecentTimes paints = new RecentTimes(WINDOW);
+    // counted over the current second
+    private long secondStart;
+    private int ticksThisSecond;
+    private int paintsThisSecond;
+    private long pixelsThisSecond;
+    private long bytesAtSecondStart = -1;
+    // the numbers for the last full second
+    private int ticksPerSecond;
+    private int framesPerSecond;
+    private long pixelsPerSecond;
+    private long allocatedBytesPerSecond;
+    private int walls;
+    private int bombs;
+    private int coins;
+    // goes up by one every time the numbers above change, so the overlay
+    // knows when to draw its text again
+    private volatile long updates;
+    // reads how much the game thread has allocated. asking allocates a little
+    // itself, so it's only done once a second
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // makes the numbers readable over JMX as GoblinAdventure:type=Performance,
+    // and turns measuring on since something is going to read them
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(this, new ObjectName("GoblinAdventure:type=Performance"));
+            setEnabled(true);
+        } catch (JMException exc) {
+            System.out.println("Error registering performance MBean: " + exc);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public synchronized void setEnabled(boolean enabled) {
+        if (enabled && !this.enabled) {
+            // start counting afresh instead of from when it was last on
+            ticks.clear();
+            paints.clear();
+            secondStart = 0;
+            bytesAtSecondStart = -1;
+        }
+        this.enabled = enabled;
+    }
+
+    // call this before a tick or a paint and pass what it returns to
+    // tickEnd() or paintEnd() afterwards
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    // call this on the game thread after every tick
+    public void tickEnd(long start, Game game) {
+        if (start == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (this) {
+            ticks.add(now - start);
+            ticksThisSecond++;
+            if (secondStart == 0) {
+                secondStart = now;
+            } else if (now - secondStart >= SECOND) {
+                endSecond(now, game);
+            }
+        }
+    }
+
+    // pixels is how much of the picture the paint redrew, so we can see how
+    // much the partial repaints save
+    public synchronized void paintEnd(long start, long pixels) {
+        if (start == 0) {
+            return;
+        }
+        paints.add(System.nanoTime() - start);
+        paintsThisSecond++;
+        pixelsThisSecond += pixels;
+    }
+
+    // works out the numbers for the second that just ended
+    private void endSecond(long now, Game game) {
+        double seconds = (double) (now - secondStart) / SECOND;
+        ticksPerSecond = (int) Math.round(ticksThisSecond / seconds);
+        framesPerSecond = (int) Math.round(paintsThisSecond / seconds);
+        pixelsPerSecond = Math.round(pixelsThisSecond / seconds);
+        long bytes = threads.getCurrentThreadAllocatedBytes();
+        if (bytesAtSecondStart >= 0 && bytes >= 0) {
+            allocatedBytesPerSecond = Math.round((bytes - bytesAtSecondStart) / seconds);
+        }
+        bytesAtSecondStart = bytes;
+        Grid grid = game.getGrid();
+        walls = grid.getWallCount();
+        bombs = grid.getBombCount();
+        coins = game.getCoinCount();
+        ticksThisSecond = 0;
+        paintsThisSecond = 0;
+        pixelsThisSecond = 0;
+        secondStart = now;
+        updates++;
+    }
+
+    public long getUpdates() {
+        return updates;
+    }
+
+    // returns the given percentile (0-100) of the recent tick times in nanoseconds
+    public synchronized long tickPercentile(double percentile) {
+        return ticks.percentile(percentile);
+    }
+
+    public synchronized long paintPercentile(double percentile) {
+        return paints.percentile(percentile);
+    }
+
+    @Override
+    public synchronized int getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    @Override
+    public synchronized int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    // the seconds only roll over on a tick, so if no tick has ended one for a
+    // whole second the board is asleep and nothing has been repainted either
+    @Override
+    public synchronized long getPixelsRepaintedPerSecond() {
+        if (secondStart != 0 && System.nanoTime() - secondStart >= 2 * SECOND) {
+            return 0;
+        }
+        return pixelsPerSecond;
+    }
+
+    @Override
+    public long getTickP50Micros() {
+        return tickPercentile(50) / 1000;
+    }
+
+    @Override
+    public long getTickP99Micros() {
+        return tickPercentile(99) / 1000;
+    }
+
+    @Override
+    public long getTickMaxMicros() {
+        return tickPercentile(100) / 1000;
+    }
+
+    @Override
+    public long getPaintP50Micros() {
+        return paintPercentile(50) / 1000;
+    }
+
+    @Override
+    public long getPaintP99Micros() {
+        return paintPercentile(99) / 1000;
+    }
+
+    @Override
+    public long getPaintMaxMicros() {
+        return paintPercentile(100) / 1000;
+    }
+
+    @Override
+    public synchronized int getWalls() {
+        return walls;
+    }
+
+    @Override
+    public synchronized int getBombs() {
+        return bombs;
+    }
+
+    @Override
+    public synchronized int getCoins() {
+        return coins;
+    }
+
+    @Override
+    public synchronized long getAllocatedBytesPerSecond() {
+        return allocatedBytesPerSecond;
+    }
+
+    @Override
+    public int getImagesDecoded() {
+        return Sprites.getDecodeCount();
+    }
+
+    @Override
+    public int getImageCacheHits() {
+        return Sprites.getHitCount();
+    }
+
+}
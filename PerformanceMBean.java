@@ -0,0 +1,40 @@
+// what Performance shows over JMX, for monitoring a running game with
+// jconsole or anything else that reads MBeans. times are in microseconds and
+// the rates are over the last full second
+public interface PerformanceMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    int getFramesPerSecond();
+
+    int getTicksPerSecond();
+
+    long getPixelsRepaintedPerSecond();
+
+    long getTickP50Micros();
+
+    long getTickP99Micros();
+
+    long getTickMaxMicros();
+
+    long getPaintP50Micros();
+
+    long getPaintP99Micros();
+
+    long getPaintMaxMicros();
+
+    int getWalls();
+
+    int getBombs();
+
+    int getCoins();
+
+    long getAllocatedBytesPerSecond();
+
+    int getImagesDecoded();
+
+    int getImageCacheHits();
+
+}
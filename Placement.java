@@ -0,0 +1,123 @@
+import java.util.Arrays;
+
+// hands out board cells in random order, never the same cell twice. this is
+// a Fisher-Yates shuffle that only shuffles as far as it needs to: each call
+// to next() picks a random cell from the ones that are left and swaps the last
+// one left into its place, so placing k things costs k steps no matter how
+// full the board gets.
+//
+// the pool of cells is an array holding every cell index in order, except
+// that we never actually fill it in. only the slots that have been swapped are
+// stored, in a small hash table of primitive ints, so a world with millions
+// of tiles doesn't need millions of entries to place a few hundred walls
+public class Placement {
+
+    // marks an empty slot in the hash table
+    private static final int EMPTY = -1;
+
+    // how many cells there are to pick from, and which cell is left out
+    private final int excludedCell;
+    private int remaining;
+    private final Rng rng;
+    // the slots of the pool that no longer hold their starting value
+    private int[] keys;
+    private int[] values;
+    private int used;
+    // cells that were picked but handed back with setAside() for later
+    private int[] setAside = new int[4];
+    private int setAsideCount;
+
+    // the pool holds every cell from 0 to cells - 1 except excludedCell
+    public Placement(int cells, int excludedCell, Rng rng) {
+        this.excludedCell = excludedCell;
+        this.rng = rng;
+        remaining = cells - 1;
+        keys = new int[16];
+        values = new int[16];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    // how many cells are still free
+    public int remaining() {
+        return remaining;
+    }
+
+    // returns a random cell that hasn't been handed out yet, or -1 if there are none left
+    public int next() {
+        if (remaining == 0) {
+            return -1;
+        }
+        int slot = rng.nextInt(remaining);
+        int picked = get(slot);
+        // move the last cell still in the pool into the slot we just emptied
+        remaining--;
+        put(slot, get(remaining));
+        return picked;
+    }
+
+    // keeps a cell out of the pool for now. it goes back in with returnSetAside()
+    public void setAside(int cell) {
+        if (setAsideCount == setAside.length) {
+            setAside = Arrays.copyOf(setAside, setAsideCount * 2);
+        }
+        setAside[setAsideCount++] = cell;
+    }
+
+    // puts every cell passed to setAside() back into the pool
+    public void returnSetAside() {
+        for (int i = 0; i < setAsideCount; i++) {
+            put(remaining, setAside[i]);
+            remaining++;
+        }
+        setAsideCount = 0;
+    }
+
+    // the cell in the given slot of the pool
+    private int get(int slot) {
+        int mask = keys.length - 1;
+        for (int i = hash(slot) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == slot) {
+                return values[i];
+            }
+        }
+        // untouched slots hold the cells in order, skipping the excluded one
+        return slot < excludedCell ? slot : slot + 1;
+    }
+
+    private void put(int slot, int cell) {
+        int mask = keys.length - 1;
+        int i = hash(slot) & mask;
+        while (keys[i] != EMPTY && keys[i] != slot) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == EMPTY) {
+            keys[i] = slot;
+            used++;
+        }
+        values[i] = cell;
+        // keep the table at most half full so lookups stay short
+        if (used * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+        used = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int hash(int slot) {
+        int h = slot * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,20 @@
+// decides what the player does each tick when nobody is at the keyboard, like
+// Bot does. Tournament plays many games with one of these to see how hard a
+// set of settings is. every game gets its own policy, so a policy can keep
+// whatever it likes between ticks
+public interface Policy {
+
+    // returns the input to pass to Game.step() this tick
+    int nextInput(Game game);
+
+    // makes a new policy from its name on the command line
+    static Policy forName(String name, long seed) {
+        if (name.equals("bot")) {
+            return new Bot();
+        } else if (name.equals("random")) {
+            return new RandomPolicy(seed);
+        }
+        throw new IllegalArgumentException("unknown policy " + name + ", use bot or random");
+    }
+
+}
@@ -0,0 +1,17 @@
+// presses a random arrow key (or nothing) every tick. a baseline to compare
+// other policies against
+public class RandomPolicy implements Policy {
+
+    private final Rng rng;
+
+    public RandomPolicy(long seed) {
+        rng = new Rng(seed);
+    }
+
+    @Override
+    public int nextInput(Game game) {
+        // Game.NONE is 0 and the arrow keys are 1 to 4
+        return rng.nextInt(5);
+    }
+
+}
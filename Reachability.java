@@ -0,0 +1,303 @@
+import java.util.Arrays;
+
+// makes sure the player can walk from the starting tile to every tile that
+// isn't a wall or a bomb. walls and bombs are placed at random, so on a
+// crowded board they can wall off pockets of free tiles, or box the player
+// in at the start. connect() opens a way into every pocket and then puts the
+// walls and bombs it took away back somewhere they can't cut anything off,
+// so the board still has as many of them as it was set up with.
+//
+// it's a breadth first search that goes through walls and bombs too, but in
+// order of how many of them it had to go through to get somewhere: everything
+// reachable without going through any, then everything behind one, and so on.
+// each tile remembers which way it was reached from, so for each free tile
+// that could only be reached through walls or bombs we walk back along that
+// way and take out what's in the way. those ways back make a tree of the free
+// tiles with the start at its root, and a tile at the end of a branch can be
+// filled in without cutting off any other, so that's where the walls and
+// bombs go back. every tile is looked at a few times at most, and the search
+// keeps one byte per tile
+public class Reachability {
+
+    // what's kept for every tile: the way it was reached from (one of the
+    // directions below), whether it has been reached yet, whether it was only
+    // reached through walls or bombs, and whether a way back from it has
+    // already been cleared
+    private static final int WAY_MASK = 3;
+    private static final int UP = 0;
+    private static final int RIGHT = 1;
+    private static final int DOWN = 2;
+    private static final int LEFT = 3;
+    private static final byte REACHED = 4;
+    private static final byte BEHIND = 8;
+    private static final byte CLEARED = 16;
+    // the top three bits count how many free tiles were reached from this one
+    private static final int CHILD = 32;
+    private static final int CHILD_SHIFT = 5;
+
+    private final Grid grid;
+    private final int columns;
+    private final int rows;
+    private final byte[] tiles;
+    // the tiles to search from at the current number of walls and bombs gone
+    // through, as a ring, and the ones behind one more
+    private int[] ring = new int[64];
+    private int head;
+    private int count;
+    private final IntList next = new IntList();
+    // free tiles that could only be reached through walls or bombs
+    private final IntList pockets = new IntList();
+    // how many walls and bombs were taken away
+    private int clearedWalls;
+    private int clearedBombs;
+
+    private Reachability(Grid grid) {
+        this.grid = grid;
+        columns = grid.getColumns();
+        rows = grid.getRows();
+        tiles = new byte[Math.multiplyExact(columns, rows)];
+    }
+
+    // opens a way from the start tile to every free tile by moving walls and
+    // bombs around on the grid, picking where they go back with rng. each
+    // tile that is cleared is handed to placement with setAside(), so it can
+    // go back in the pool for coins, even if a wall or bomb ends up back on
+    // it. returns how many walls and bombs were moved. if there aren't enough
+    // dead ends to put them all back, like on a board that's nearly all walls,
+    // the rest are left off
+    public static int connect(Grid grid, int startX, int startY, Placement placement, Rng rng) {
+        if (!anyTouching(grid)) {
+            return 0;
+        }
+        Reachability reachability = new Reachability(grid);
+        int start = startY * grid.getColumns() + startX;
+        reachability.search(start);
+        int cleared = reachability.clear(placement);
+        if (cleared > 0) {
+            reachability.putBack(start, rng);
+        }
+        return cleared;
+    }
+
+    // whether any wall or bomb is next to another one, counting corners. to cut
+    // tiles off, walls and bombs have to make a closed ring around them, and
+    // every wall or bomb in a ring is next to the ones either side of it. on a
+    // board less than three tiles across the board wrapping around can close
+    // a ring on its own, so those always get searched. this only looks at the
+    // walls and bombs, so a big board with a few of them scattered about
+    // doesn't have to search every tile
+    private static boolean anyTouching(Grid grid) {
+        int columns = grid.getColumns();
+        int rows = grid.getRows();
+        if (grid.getWallCount() + grid.getBombCount() == 0) {
+            return false;
+        }
+        if (columns < 3 || rows < 3) {
+            return true;
+        }
+        for (int chunkY = 0; chunkY < grid.getChunkRows(); chunkY++) {
+            for (int chunkX = 0; chunkX < grid.getChunkColumns(); chunkX++) {
+                Chunk chunk = grid.getChunk(chunkX, chunkY);
+                if (chunk == null) {
+                    continue;
+                }
+                Entities layout = chunk.getLayout();
+                for (int i = 0; i < layout.size(); i++) {
+                    int x = layout.getX(i);
+                    int y = layout.getY(i);
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dx = -1; dx <= 1; dx++) {
+                            if ((dx != 0 || dy != 0) && grid.isOccupied(
+                                    (x + dx + columns) % columns, (y + dy + rows) % rows)) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void search(int start) {
+        tiles[start] = REACHED;
+        push(start);
+        boolean behind = false;
+        while (count > 0) {
+            while (count > 0) {
+                int tile = ring[head];
+                head = (head + 1) & (ring.length - 1);
+                count--;
+                visit(tile, behind);
+            }
+            // everything at this depth is done, so go one wall or bomb deeper
+            for (int i = 0; i < next.size; i++) {
+                push(next.values[i]);
+            }
+            next.size = 0;
+            behind = true;
+        }
+    }
+
+    private int clear(Placement placement) {
+        for (int i = 0; i < pockets.size; i++) {
+            // walk back towards the start until we get to a tile that was
+            // reached without going through anything, or one already cleared
+            int tile = pockets.values[i];
+            while ((tiles[tile] & (BEHIND | CLEARED)) == BEHIND) {
+                tiles[tile] |= CLEARED;
+                int x = tile % columns;
+                int y = tile / columns;
+                byte removed = grid.removeBlocker(x, y);
+                if (removed != 0) {
+                    placement.setAside(tile);
+                    if (removed == Grid.WALL) {
+                        clearedWalls++;
+                    } else {
+                        clearedBombs++;
+                    }
+                }
+                tile = neighbor(x, y, tiles[tile] & WAY_MASK);
+            }
+        }
+        return clearedWalls + clearedBombs;
+    }
+
+    // puts the walls and bombs that were cleared back on the ends of branches
+    // of the tree of free tiles, picked at random. filling in a branch's end
+    // can make the tile before it an end, which can then be filled in too
+    private void putBack(int start, Rng rng) {
+        // every free tile is now reached from another free tile, except the start
+        IntList ends = new IntList();
+        for (int tile = 0; tile < tiles.length; tile++) {
+            if (tile != start && isFree(tile)) {
+                tiles[parent(tile)] += CHILD;
+            }
+        }
+        for (int tile = 0; tile < tiles.length; tile++) {
+            if (canFill(tile, start) && children(tile) == 0) {
+                ends.add(tile);
+            }
+        }
+        int left = clearedWalls + clearedBombs;
+        while (left > 0 && ends.size > 0) {
+            int pick = rng.nextInt(ends.size);
+            int tile = ends.values[pick];
+            ends.values[pick] = ends.values[--ends.size];
+            int x = tile % columns;
+            int y = tile / columns;
+            // walls first, then bombs
+            if (left > clearedBombs) {
+                grid.addWall(x, y);
+            } else {
+                grid.addBomb(x, y);
+            }
+            left--;
+            int parent = parent(tile);
+            tiles[parent] -= CHILD;
+            if (canFill(parent, start) && children(parent) == 0) {
+                ends.add(parent);
+            }
+        }
+    }
+
+    private boolean isFree(int tile) {
+        return !grid.isOccupied(tile % columns, tile / columns);
+    }
+
+    // whether a wall or bomb can go back on the tile. the start and the tiles
+    // the player can step to from it are kept clear, see Game.awayFromStart()
+    private boolean canFill(int tile, int start) {
+        if (tile == start || !isFree(tile)) {
+            return false;
+        }
+        int x = start % columns;
+        int y = start / columns;
+        return tile != neighbor(x, y, UP) && tile != neighbor(x, y, RIGHT)
+            && tile != neighbor(x, y, DOWN) && tile != neighbor(x, y, LEFT);
+    }
+
+    private int parent(int tile) {
+        return neighbor(tile % columns, tile / columns, tiles[tile] & WAY_MASK);
+    }
+
+    private int children(int tile) {
+        return (tiles[tile] & 0xFF) >>> CHILD_SHIFT;
+    }
+
+    // looks at the four tiles next to this one. the board wraps around at the
+    // edges like the player does
+    private void visit(int tile, boolean behind) {
+        int x = tile % columns;
+        int y = tile / columns;
+        int up = y == 0 ? rows - 1 : y - 1;
+        int down = y == rows - 1 ? 0 : y + 1;
+        int left = x == 0 ? columns - 1 : x - 1;
+        int right = x == columns - 1 ? 0 : x + 1;
+        // each neighbor remembers the way back to this tile, which is the
+        // opposite of the way we went to get to it
+        reach(x, up, DOWN, behind);
+        reach(right, y, LEFT, behind);
+        reach(x, down, UP, behind);
+        reach(left, y, RIGHT, behind);
+    }
+
+    private void reach(int x, int y, int wayBack, boolean behind) {
+        int tile = y * columns + x;
+        if ((tiles[tile] & REACHED) != 0) {
+            return;
+        }
+        // there are no coins yet, so anything on the tile is a wall or a bomb
+        boolean blocked = grid.isOccupied(x, y);
+        tiles[tile] = (byte) (REACHED | wayBack | (behind || blocked ? BEHIND : 0));
+        if (blocked) {
+            next.add(tile);
+        } else {
+            push(tile);
+            if (behind) {
+                pockets.add(tile);
+            }
+        }
+    }
+
+    private int neighbor(int x, int y, int way) {
+        switch (way) {
+            case UP:
+                return (y == 0 ? rows - 1 : y - 1) * columns + x;
+            case RIGHT:
+                return y * columns + (x == columns - 1 ? 0 : x + 1);
+            case DOWN:
+                return (y == rows - 1 ? 0 : y + 1) * columns + x;
+            default:
+                return y * columns + (x == 0 ? columns - 1 : x - 1);
+        }
+    }
+
+    private void push(int tile) {
+        if (count == ring.length) {
+            // unroll the ring into a bigger one
+            int[] bigger = new int[ring.length * 2];
+            for (int i = 0; i < count; i++) {
+                bigger[i] = ring[(head + i) & (ring.length - 1)];
+            }
+            ring = bigger;
+            head = 0;
+        }
+        ring[(head + count) & (ring.length - 1)] = tile;
+        count++;
+    }
+
+    // a growable list of tile numbers
+    private static class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+}
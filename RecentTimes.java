@@ -0,0 +1,51 @@
+import java.util.Arrays;
+
+// the most recent times of something (how long frames, ticks or key presses
+// took), kept to work out percentiles like the typical (p50) and the worst
+// (p99) of them. it remembers a fixed number of times and forgets the oldest
+// ones first, so adding a time never allocates anything.
+//
+// it isn't thread safe on its own, the classes that use it lock around it
+public class RecentTimes {
+
+    // the most recent times in nanoseconds, used as a ring buffer
+    private final long[] times;
+    // scratch copy of the times that gets sorted to find the percentiles
+    private final long[] sorted;
+    private int next;
+    private int count;
+
+    public RecentTimes(int window) {
+        times = new long[window];
+        sorted = new long[window];
+    }
+
+    public void add(long nanos) {
+        times[next] = nanos;
+        next = (next + 1) % times.length;
+        count = Math.min(count + 1, times.length);
+    }
+
+    public void clear() {
+        next = 0;
+        count = 0;
+    }
+
+    // how many times are being remembered
+    public int size() {
+        return count;
+    }
+
+    // returns the given percentile (0-100) of the recent times in nanoseconds,
+    // or 0 if there aren't any yet
+    public long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        System.arraycopy(times, 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+}
@@ -0,0 +1,156 @@
+// everything the renderer needs to draw one frame: the score, the player,
+// where the camera is, and the walls, bombs and coins the camera can see.
+// with a ChunkedRenderer that's everything in the chunks the camera can see,
+// even the parts of them just off screen, so a chunk's contents don't change
+// when the view scrolls across it.
+// the game thread fills one in at the end of every tick and hands it over
+// through a RenderStateBuffer, and the renderer only ever draws from the
+// latest one it was handed. a state is never changed once it has been handed
+// over, so drawing needs no locks and never sees half of a tick, even if it
+// runs on another thread than the game.
+//
+// there are only ever three of these, which are reused over and over again,
+// so filling one in doesn't make any garbage
+public class RenderState {
+
+    private long tick;
+    private int score;
+    private int lives;
+    private boolean over;
+    private boolean won;
+    private int playerX;
+    private int playerY;
+    // top left tile of the camera
+    private int cameraX;
+    private int cameraY;
+    // the way the hint arrow points, or Game.NONE for no arrow
+    private int hint = Game.NONE;
+    // the walls and bombs in view, and the layout version, camera position
+    // and chunk size they were copied for. they only change when a round
+    // starts or the camera scrolls, so they're only copied again then
+    private final Entities layout = new Entities();
+    private long layoutVersion = -1;
+    private int layoutX = -1;
+    private int layoutY = -1;
+    private int layoutChunkTiles;
+    // the coins in view
+    private final Entities coins = new Entities();
+    // set when the state is handed over and cleared once the renderer has
+    // taken it, see RenderStateBuffer
+    boolean fresh;
+
+    // copies the game into this state. only called on the game thread, on a
+    // state the renderer doesn't have. chunkTiles is how many tiles wide the
+    // renderer's chunks are, and everything in a chunk the camera can see
+    // part of is copied. 1 copies exactly what the camera can see
+    void capture(Game game, Camera camera, boolean showHint, int chunkTiles) {
+        tick = game.getTicks();
+        score = game.getScore();
+        lives = game.getLives();
+        over = game.isOver();
+        won = game.isWon();
+        playerX = game.getPlayer().getPos().x;
+        playerY = game.getPlayer().getPos().y;
+        cameraX = camera.getX();
+        cameraY = camera.getY();
+        hint = showHint && !over ? game.getPathfinder().nextStep(playerX, playerY) : Game.NONE;
+
+        // the tiles to copy, widened out to the edges of the renderer's chunks
+        int firstX = cameraX / chunkTiles * chunkTiles;
+        int firstY = cameraY / chunkTiles * chunkTiles;
+        int endX = Math.min(game.getColumns(), ((cameraX + camera.getColumns() - 1) / chunkTiles + 1) * chunkTiles);
+        int endY = Math.min(game.getRows(), ((cameraY + camera.getRows() - 1) / chunkTiles + 1) * chunkTiles);
+
+        Grid grid = game.getGrid();
+        boolean layoutChanged = layoutVersion != game.getLayoutVersion() || layoutX != cameraX || layoutY != cameraY
+            || layoutChunkTiles != chunkTiles;
+        if (layoutChanged) {
+            layout.clear();
+        }
+        coins.clear();
+        int lastChunkX = (endX - 1) >> Chunk.SHIFT;
+        int lastChunkY = (endY - 1) >> Chunk.SHIFT;
+        for (int chunkY = firstY >> Chunk.SHIFT; chunkY <= lastChunkY; chunkY++) {
+            for (int chunkX = firstX >> Chunk.SHIFT; chunkX <= lastChunkX; chunkX++) {
+                Chunk chunk = grid.getChunk(chunkX, chunkY);
+                if (chunk == null) {
+                    continue;
+                }
+                if (layoutChanged) {
+                    copyInside(chunk.getLayout(), layout, firstX, firstY, endX, endY);
+                }
+                copyInside(chunk.getCoins(), coins, firstX, firstY, endX, endY);
+            }
+        }
+        layoutVersion = game.getLayoutVersion();
+        layoutX = cameraX;
+        layoutY = cameraY;
+        layoutChunkTiles = chunkTiles;
+    }
+
+    // copies what's between the first tile and the end tile, not counting the end
+    private static void copyInside(Entities from, Entities to, int firstX, int firstY, int endX, int endY) {
+        for (int i = 0; i < from.size(); i++) {
+            int x = from.getX(i);
+            int y = from.getY(i);
+            if (x >= firstX && x < endX && y >= firstY && y < endY) {
+                to.add(x, y, from.getFlags(i), from.getSprite(i));
+            }
+        }
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLives() {
+        return lives;
+    }
+
+    public boolean isOver() {
+        return over;
+    }
+
+    public boolean isWon() {
+        return won;
+    }
+
+    public int getPlayerX() {
+        return playerX;
+    }
+
+    public int getPlayerY() {
+        return playerY;
+    }
+
+    public int getCameraX() {
+        return cameraX;
+    }
+
+    public int getCameraY() {
+        return cameraY;
+    }
+
+    public int getHint() {
+        return hint;
+    }
+
+    public long getLayoutVersion() {
+        return layoutVersion;
+    }
+
+    // the walls and bombs the camera can see, see capture(). don't change it
+    public Entities getLayout() {
+        return layout;
+    }
+
+    // the coins the camera can see, see capture(). don't change it
+    public Entities getCoins() {
+        return coins;
+    }
+
+}
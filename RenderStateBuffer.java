@@ -0,0 +1,41 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+// hands RenderStates from the game thread to the thread that draws, without
+// either of them ever waiting for the other. there are three states: the one
+// the game is filling in, the one the renderer is drawing, and the newest
+// finished one in between. handing one over, from either side, is a single
+// atomic swap with the one in between, so the game can tick faster or slower
+// than frames are drawn and the renderer always gets the newest whole tick.
+// if the game finishes two ticks before the renderer asks, the older one is
+// just filled in again
+public class RenderStateBuffer {
+
+    // only touched by the game thread
+    private RenderState back = new RenderState();
+    // the newest state handed over, or one the renderer has finished with
+    private final AtomicReference<RenderState> middle = new AtomicReference<>(new RenderState());
+    // only touched by the thread that draws
+    private RenderState front = new RenderState();
+
+    // the state the game thread should fill in next
+    public RenderState getBack() {
+        return back;
+    }
+
+    // hands over the state from getBack() once it's filled in
+    public void publish() {
+        back.fresh = true;
+        back = middle.getAndSet(back);
+    }
+
+    // the newest state that has been handed over. only call this from the
+    // thread that draws. the state stays the same until the next call
+    public RenderState latest() {
+        if (middle.get().fresh) {
+            front = middle.getAndSet(front);
+            front.fresh = false;
+        }
+        return front;
+    }
+
+}
@@ -0,0 +1,276 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+
+// draws a game onto any Graphics. both the Swing Board and the actively
+// rendered GameCanvas use this, so the two always look the same.
+// only the part of the world the camera can see is drawn, and only the chunks
+// of the grid inside that view are looked at, so drawing costs the same no
+// matter how big the world is.
+//
+// the game thread calls publish() after every tick, which copies what's on
+// screen into a RenderState. draw() only ever looks at the newest of those,
+// never at the game itself, so it can run on any thread
+public class Renderer {
+
+    // colors of the board
+    public static final Color BACKGROUND_COLOR = new Color(232, 232, 232);
+    public static final Color TILE_COLOR = new Color(214, 214, 214);
+    private static final Color HINT_COLOR = new Color(30, 175, 155);
+
+    // the game being drawn
+    private final Game game;
+    // size of each tile on screen
+    private final int tileSize;
+    // which part of the world is on screen
+    private final Camera camera;
+    // draws the score and the end text, keeping the text it drew around
+    private final Hud hud;
+    // the checkered floor with the walls and bombs already drawn on top of it,
+    // for the part of the world that's on screen. none of these move during a
+    // round, so instead of drawing every tile each frame we draw them once and
+    // copy the whole image onto the screen until the camera moves
+    private BufferedImage background;
+    // the layout version and the camera position the background was drawn for
+    private long backgroundVersion;
+    private int backgroundX = -1;
+    private int backgroundY = -1;
+    // what's on screen after each tick, handed from the game thread to draw()
+    private final RenderStateBuffer states = new RenderStateBuffer();
+    // whether to draw an arrow on the player pointing the way to the nearest
+    // coin. it can be switched on and off from another thread
+    private volatile boolean showHint;
+    // the corners of the arrow, reused every frame
+    private final int[] hintXs = new int[3];
+    private final int[] hintYs = new int[3];
+    // draws the board in chunks on several threads instead, or null to draw
+    // it here, see setChunked()
+    private volatile ChunkedRenderer chunked;
+    // the performance numbers to show in the corner, or null to show none.
+    // like the hint it can be switched from another thread
+    private volatile Performance overlay;
+
+    public Renderer(Game game) {
+        this.game = game;
+        GameConfig config = game.getConfig();
+        tileSize = config.getTileSize();
+        camera = new Camera(config.getViewColumns(), config.getViewRows(), game.getColumns(), game.getRows());
+        camera.follow(game.getPlayer().getPos());
+        hud = new Hud(getWidth(), getHeight(), tileSize);
+        // so there is something to draw before the first tick
+        publish();
+    }
+
+    // size of the view on screen in pixels
+    public int getWidth() {
+        return tileSize * camera.getColumns();
+    }
+
+    public int getHeight() {
+        return tileSize * camera.getRows();
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public Camera getCamera() {
+        return camera;
+    }
+
+    // call this on the game thread at the end of every tick (and after
+    // anything else that changes the game, like a restart). it keeps the
+    // player on screen and hands what's on screen over to draw(). returns
+    // true if the view scrolled, in which case everything on screen has to be
+    // drawn again
+    public boolean publish() {
+        boolean scrolled = camera.follow(game.getPlayer().getPos());
+        ChunkedRenderer chunks = chunked;
+        states.getBack().capture(game, camera, showHint, chunks != null ? chunks.getChunkTiles() : 1);
+        states.publish();
+        return scrolled;
+    }
+
+    // config is the screen we're drawing to, or null if we're not on screen
+    public void draw(Graphics g, GraphicsConfiguration config, ImageObserver observer) {
+        RenderState state = states.latest();
+        ChunkedRenderer chunks = chunked;
+        if (!state.isOver()) {
+            if (chunks != null) {
+                // the chunks have the coins in them too, so with them the
+                // score ends up on top of the coins instead of under them
+                chunks.draw(g, state, config, observer);
+            } else {
+                drawBackground(g, state, config, observer);
+            }
+            hud.drawScore(g, state.getScore(), state.getLives(), config, observer);
+
+            // everything below is drawn in world pixels, so shift the world so
+            // that the camera's top left tile lands in the corner of the screen
+            int shiftX = state.getCameraX() * tileSize;
+            int shiftY = state.getCameraY() * tileSize;
+            g.translate(-shiftX, -shiftY);
+            if (chunks == null) {
+                drawEntities(g, state.getCoins(), observer);
+            }
+            // this is also where we translate board grid position into a
+            // canvas pixel position by multiplying by the tile size
+            g.drawImage(
+                Sprites.get(Sprites.GOBLIN_ID, tileSize),
+                state.getPlayerX() * tileSize,
+                state.getPlayerY() * tileSize,
+                observer
+            );
+            if (state.getHint() != Game.NONE) {
+                drawHint(g, state);
+            }
+            g.translate(shiftX, shiftY);
+        } else {
+            g.setColor(BACKGROUND_COLOR);
+            g.fillRect(0, 0, getWidth(), getHeight());
+            hud.drawEndText(g, state.isWon(), config, observer);
+        }
+        Performance performance = overlay;
+        if (performance != null) {
+            hud.drawOverlay(g, performance, config, observer);
+        }
+    }
+
+    // draws a small arrow on the edge of the player's tile, on the side the
+    // nearest coin is reached from, in world pixels
+    private void drawHint(Graphics g, RenderState state) {
+        int direction = state.getHint();
+        int centerX = state.getPlayerX() * tileSize + tileSize / 2;
+        int centerY = state.getPlayerY() * tileSize + tileSize / 2;
+        // the tip sits on the edge of the tile and the base a little way in
+        int tip = tileSize / 2;
+        int base = tileSize / 4;
+        int half = tileSize / 5;
+        int dx = direction == Game.RIGHT ? 1 : direction == Game.LEFT ? -1 : 0;
+        int dy = direction == Game.DOWN ? 1 : direction == Game.UP ? -1 : 0;
+        hintXs[0] = centerX + dx * tip;
+        hintYs[0] = centerY + dy * tip;
+        hintXs[1] = centerX + dx * base - dy * half;
+        hintYs[1] = centerY + dy * base + dx * half;
+        hintXs[2] = centerX + dx * base + dy * half;
+        hintYs[2] = centerY + dy * base - dx * half;
+        g.setColor(HINT_COLOR);
+        g.fillPolygon(hintXs, hintYs, 3);
+    }
+
+    public boolean isShowingHint() {
+        return showHint;
+    }
+
+    public void setShowHint(boolean showHint) {
+        this.showHint = showHint;
+    }
+
+    public boolean isChunked() {
+        return chunked != null;
+    }
+
+    // draws the board with a ChunkedRenderer, which is quicker when a lot of
+    // the world is on screen at once
+    public void setChunked(boolean chunked) {
+        if (chunked != isChunked()) {
+            this.chunked = chunked ? new ChunkedRenderer(tileSize, camera.getColumns(), camera.getRows()) : null;
+        }
+    }
+
+    // the ChunkedRenderer drawing the board, or null. Benchmarks reads how
+    // many chunks it drew again
+    ChunkedRenderer getChunkedRenderer() {
+        return chunked;
+    }
+
+    // throws away every image drawn ahead of time, so the next frame draws
+    // everything from scratch. Benchmarks uses this to time a full redraw
+    void invalidate() {
+        background = null;
+        ChunkedRenderer chunks = chunked;
+        if (chunks != null) {
+            chunks.invalidate();
+        }
+    }
+
+    public Performance getOverlay() {
+        return overlay;
+    }
+
+    // shows the given performance numbers in the top left corner, or hides
+    // them if it's null
+    public void setOverlay(Performance overlay) {
+        this.overlay = overlay;
+    }
+
+    // draws everything in the list, in world pixels. without a
+    // ChunkedRenderer the render state only has what the camera can see in it
+    private void drawEntities(Graphics g, Entities entities, ImageObserver observer) {
+        for (int i = 0; i < entities.size(); i++) {
+            // this is also where we translate board grid position into a
+            // canvas pixel position by multiplying by the tile size
+            int x = entities.getX(i);
+            int y = entities.getY(i);
+            g.drawImage(Sprites.get(entities.getSprite(i), tileSize), x * tileSize, y * tileSize, observer);
+        }
+    }
+
+    private void drawBackground(Graphics g, RenderState state, GraphicsConfiguration config, ImageObserver observer) {
+        // the walls or bombs changed or the camera moved since we last drew
+        // them, so redo the image
+        if (background == null
+                || backgroundVersion != state.getLayoutVersion()
+                || backgroundX != state.getCameraX()
+                || backgroundY != state.getCameraY()) {
+            renderBackground(state, config, observer);
+        }
+        g.drawImage(background, 0, 0, observer);
+    }
+
+    private void renderBackground(RenderState state, GraphicsConfiguration config, ImageObserver observer) {
+        int width = getWidth();
+        int height = getHeight();
+        // reuse the old image if there is one, it's always the same size
+        if (background == null) {
+            background = Sprites.createImage(width, height, Transparency.OPAQUE, config);
+        }
+        Graphics2D g2d = background.createGraphics();
+        g2d.setColor(BACKGROUND_COLOR);
+        g2d.fillRect(0, 0, width, height);
+
+        // draw a checkered background
+        g2d.setColor(TILE_COLOR);
+        int cameraX = state.getCameraX();
+        int cameraY = state.getCameraY();
+        for (int row = 0; row < camera.getRows(); row++) {
+            for (int col = 0; col < camera.getColumns(); col++) {
+                // only color every other tile. the pattern follows the world
+                // tiles so it scrolls along with the camera
+                if ((cameraY + row + cameraX + col) % 2 == 1) {
+                    // draw a square tile at the current row/column position
+                    g2d.fillRect(
+                        col * tileSize,
+                        row * tileSize,
+                        tileSize,
+                        tileSize
+                    );
+                }
+            }
+        }
+
+        // draws walls and bombs that are on screen, shifted the same way as the coins
+        g2d.translate(-cameraX * tileSize, -cameraY * tileSize);
+        drawEntities(g2d, state.getLayout(), observer);
+
+        g2d.dispose();
+        backgroundVersion = state.getLayoutVersion();
+        backgroundX = cameraX;
+        backgroundY = cameraY;
+    }
+
+}
@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+// plays a recorded game again as fast as possible, without drawing anything,
+// and checks that it ends with the same score and lives as the recording.
+// record a game by starting it with -Dgoblin.record=game.log, then run
+//
+//     java Replay game.log
+//
+public class Replay {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Usage: java Replay <input log>");
+            System.exit(2);
+        }
+        InputLog log = InputLog.load(Paths.get(args[0]));
+
+        long start = System.nanoTime();
+        Game game = replay(log);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf(
+            "Replayed %d ticks in %.1f ms (%.0f ticks per second): gold %d, lives %d%n",
+            game.getTicks(),
+            elapsed / 1e6,
+            game.getTicks() * 1e9 / elapsed,
+            game.getScore(),
+            game.getLives()
+        );
+        if (!log.isFinished()) {
+            System.out.println("The recording has no end result to compare against");
+        } else if (matches(log, game)) {
+            System.out.println("The replay matches the recording");
+        } else {
+            System.out.printf(
+                "The replay does NOT match the recording, which ended after %d ticks with gold %d, lives %d%n",
+                log.getFinalTicks(),
+                log.getFinalScore(),
+                log.getFinalLives()
+            );
+            System.exit(1);
+        }
+    }
+
+    // plays the whole recording and returns the game in the state it ended up in
+    public static Game replay(InputLog log) throws IOException {
+        // a game played on a level starts (and restarts) on that level again
+        Game game = log.getLevel() == null
+            ? new Game(log.getConfig())
+            : Level.open(log.getLevel()).start(log.getConfig());
+        for (int i = 0; i < log.size(); i++) {
+            if (log.getType(i) == InputLog.STEP) {
+                // nothing happened on the ticks in between
+                advanceTo(game, log.getTick(i) - 1);
+                for (int spawn = 0; spawn < log.getSpawns(i); spawn++) {
+                    game.requestCoin();
+                }
+                game.step(log.getInput(i));
+            } else {
+                advanceTo(game, log.getTick(i));
+                game.restart();
+            }
+        }
+        if (log.isFinished()) {
+            advanceTo(game, log.getFinalTicks());
+        }
+        return game;
+    }
+
+    private static void advanceTo(Game game, long tick) {
+        // a finished round doesn't tick, so stop there even if the recording
+        // says otherwise. matches() will notice the difference
+        while (game.getTicks() < tick && !game.isOver()) {
+            game.step(Game.NONE);
+        }
+    }
+
+    public static boolean matches(InputLog log, Game game) {
+        return game.getTicks() == log.getFinalTicks()
+            && game.getScore() == log.getFinalScore()
+            && game.getLives() == log.getFinalLives();
+    }
+
+}
@@ -0,0 +1,36 @@
+// the random number generator every game uses. unlike java.util.Random, its
+// whole state is a single long that can be read and set, so a game can be
+// saved and replayed exactly. this is the SplitMix64 generator
+public class Rng {
+
+    private long state;
+
+    public Rng(long seed) {
+        state = seed;
+    }
+
+    public long nextLong() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // returns a number from 0 up to (but not including) bound. the tiny bias
+    // this has towards some numbers is far too small to matter for a game
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+}
@@ -0,0 +1,319 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// a saved game: the settings, the player, every wall, bomb and coin, and the
+// state of the rng, so a loaded game carries on exactly where it was saved.
+//
+// the file is binary and starts with a magic number and a format version:
+//
+//     int magic, int version
+//     the game's settings, see writeConfig()
+//     long ticks, long rng state, byte 0 playing / 1 won / 2 lost
+//     int x, int y, int score, int lives of the player
+//     int coin spawns asked for but not yet made, long coins rejected
+//     int coin count, then per coin (oldest first): int tile, byte special, long arrival tick
+//     the walls, then the bombs, see writeTiles()
+//
+// tiles are numbered row by row (y * columns + x). capture() only reads the
+// game, so it can be called between ticks on the game's own thread and the
+// slow part, write(), can be done on any other thread. capture() only copies
+// the small part that changes every tick. for the walls and bombs it just
+// keeps the board's chunks (see Grid.copyChunks()), and they are turned into
+// bytes by write(), off the game's thread
+public class Snapshot {
+
+    private static final int MAGIC = 0x474F4253;
+    private static final int VERSION = 2;
+    // how a list of tiles is stored: as tile numbers, or as one bit per tile of
+    // the board, whichever is smaller
+    private static final byte TILE_LIST = 0;
+    private static final byte TILE_BITS = 1;
+    // how many bytes each coin takes up: its tile, whether it's special and when it arrived
+    private static final int COIN_BYTES = 13;
+
+    // the walls and bombs of one round. the chunks are copied when the
+    // snapshot is taken and only turned into bytes the first time they're
+    // written, and then kept for the next snapshot of the same round
+    private static class Layout {
+        private final Chunk[] chunks;
+        private final int columns;
+        private final int rows;
+        private final int wallCount;
+        private final int bombCount;
+        private ByteBuffer bytes;
+
+        Layout(Grid grid) {
+            chunks = grid.copyChunks();
+            columns = grid.getColumns();
+            rows = grid.getRows();
+            wallCount = grid.getWallCount();
+            bombCount = grid.getBombCount();
+        }
+
+        synchronized ByteBuffer bytes() {
+            if (bytes == null) {
+                bytes = encodeLayout(this);
+            }
+            return bytes.duplicate();
+        }
+    }
+
+    // the parts that change every tick, and the walls and bombs, which only
+    // change when a new round starts. capture() reuses the walls and bombs of
+    // the previous snapshot if they're still the same
+    private final ByteBuffer state;
+    private final Layout layout;
+    private final long layoutVersion;
+
+    private Snapshot(ByteBuffer state, Layout layout, long layoutVersion) {
+        this.state = state;
+        this.layout = layout;
+        this.layoutVersion = layoutVersion;
+    }
+
+    public static void save(Game game, Path path) throws IOException {
+        capture(game, null).write(path);
+    }
+
+    // copies the game into memory. previous can be null, or an earlier
+    // snapshot of the same game whose walls and bombs can be reused
+    public static Snapshot capture(Game game, Snapshot previous) {
+        CoinField coinField = game.getCoinField();
+        int[] coins = coinField.slotsByArrival();
+        ByteBuffer state = ByteBuffer.allocate(256 + coins.length * COIN_BYTES);
+        state.putInt(MAGIC);
+        state.putInt(VERSION);
+        writeConfig(state, game.getConfig());
+        state.putLong(game.getTicks());
+        state.putLong(game.getRngState());
+        state.put((byte) (game.isWon() ? 1 : game.isLost() ? 2 : 0));
+        Player player = game.getPlayer();
+        state.putInt(player.getPos().x);
+        state.putInt(player.getPos().y);
+        state.putInt(player.getScore());
+        state.putInt(player.getLives());
+        state.putInt(game.getPendingSpawns());
+        state.putLong(game.getRejectedCoins());
+        state.putInt(coins.length);
+        for (int slot : coins) {
+            state.putInt(coinField.getY(slot) * game.getColumns() + coinField.getX(slot));
+            state.put((byte) (coinField.isSpecial(slot) ? 1 : 0));
+            state.putLong(coinField.getArrivalTick(slot));
+        }
+        state.flip();
+
+        Layout layout;
+        if (previous != null && previous.layoutVersion == game.getLayoutVersion()) {
+            layout = previous.layout;
+        } else {
+            layout = new Layout(game.getGrid());
+        }
+        return new Snapshot(state, layout, game.getLayoutVersion());
+    }
+
+    // turns the walls and bombs into bytes. this is the slow part on a big
+    // world, so it's done by write() instead of capture()
+    private static ByteBuffer encodeLayout(Layout copy) {
+        int[] walls = new int[copy.wallCount];
+        int[] bombs = new int[copy.bombCount];
+        int wallCount = 0;
+        int bombCount = 0;
+        for (Chunk chunk : copy.chunks) {
+            if (chunk == null) {
+                continue;
+            }
+            Entities layout = chunk.getLayout();
+            for (int i = 0; i < layout.size(); i++) {
+                int tile = layout.getY(i) * copy.columns + layout.getX(i);
+                if (layout.getFlags(i) == Grid.WALL) {
+                    walls[wallCount++] = tile;
+                } else {
+                    bombs[bombCount++] = tile;
+                }
+            }
+        }
+        int tiles = copy.columns * copy.rows;
+        ByteBuffer layout = ByteBuffer.allocate(tileBytes(wallCount, tiles) + tileBytes(bombCount, tiles));
+        writeTiles(layout, walls, wallCount, tiles);
+        writeTiles(layout, bombs, bombCount, tiles);
+        layout.flip();
+        return layout;
+    }
+
+    // how many bytes writeTiles() needs
+    private static int tileBytes(int count, int tiles) {
+        return 5 + Math.min(count * 4, (tiles + 7) / 8);
+    }
+
+    private static void writeTiles(ByteBuffer out, int[] list, int count, int tiles) {
+        if (count * 4 <= (tiles + 7) / 8) {
+            out.put(TILE_LIST);
+            out.putInt(count);
+            for (int i = 0; i < count; i++) {
+                out.putInt(list[i]);
+            }
+        } else {
+            // a crowded board is smaller as a bitmap of the whole board
+            out.put(TILE_BITS);
+            out.putInt(count);
+            byte[] bits = new byte[(tiles + 7) / 8];
+            for (int i = 0; i < count; i++) {
+                bits[list[i] >> 3] |= 1 << (list[i] & 7);
+            }
+            out.put(bits);
+        }
+    }
+
+    private static void writeConfig(ByteBuffer out, GameConfig config) {
+        out.putInt(config.getColumns());
+        out.putInt(config.getRows());
+        out.putInt(config.getNumWalls());
+        out.putInt(config.getNumBombs());
+        out.putInt(config.getNumCoins());
+        out.putInt(config.getTileSize());
+        out.putInt(config.getViewColumns());
+        out.putInt(config.getViewRows());
+        out.putLong(config.getSeed());
+        out.putInt(config.getMaxCoins());
+        out.putLong(config.getCoinTimeToLive());
+        out.putLong(config.getSpecialCoinTimeToLive());
+        out.putInt(config.getEvictionPolicy());
+        out.putInt(config.getSpecialCoinOdds());
+        out.putInt(config.getSpecialCoinChance());
+    }
+
+    // writes the snapshot to a file. it goes to a temporary file first, which
+    // is forced onto the disk and only then moved over the old one, so a
+    // crash or power cut halfway through never leaves a broken save behind
+    public void write(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        ByteBuffer[] parts = {state.duplicate(), layout.bytes()};
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (parts[1].hasRemaining()) {
+                channel.write(parts);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // reads a saved game. the file is mapped into memory instead of being read
+    // into a buffer first, so even a huge world is read straight from the page cache
+    public static Game load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return read(in);
+            } catch (BufferUnderflowException | IllegalArgumentException
+                    | IndexOutOfBoundsException | ArithmeticException exc) {
+                // read() trusts the numbers in the file. one that was cut short
+                // runs off the end of the buffer, settings GameConfig won't take
+                // are refused by its constructor, a wall or bomb past the edge
+                // of the board misses the grid's chunk table, and a world too
+                // big to have one overflows working out its size. coins that
+                // can't go back are caught by read() itself
+                throw new IOException("bad snapshot " + path + ": " + exc, exc);
+            }
+        }
+    }
+
+    private static Game read(ByteBuffer in) throws IOException {
+        if (in.getInt() != MAGIC) {
+            throw new IOException("not a snapshot");
+        }
+        int version = in.getInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("snapshot version " + version + " is not supported");
+        }
+        GameConfig config = new GameConfig(
+            in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt(),
+            in.getInt(), in.getInt(), in.getInt(), in.getLong(),
+            in.getInt(), in.getLong(), in.getLong(), in.getInt()
+        );
+        // version 1 saves are from before the special coin odds could be changed
+        if (version >= 2) {
+            config = config.withSpecialCoinOdds(in.getInt(), in.getInt());
+        }
+        Game game = new Game(config, false);
+        int columns = config.getColumns();
+
+        long ticks = in.getLong();
+        long rngState = in.getLong();
+        byte over = in.get();
+        int x = in.getInt();
+        int y = in.getInt();
+        int score = in.getInt();
+        int lives = in.getInt();
+        game.getPlayer().restore(x, y, score, lives);
+        int pendingSpawns = in.getInt();
+        long rejected = in.getLong();
+
+        // the coins come before the walls and bombs in the file, but they go
+        // back on the board after them, so a coin saved on a wall or bomb's
+        // tile is caught. skip over them for now and come back
+        int coins = in.getInt();
+        int coinsAt = in.position();
+        in.position(Math.addExact(coinsAt, Math.multiplyExact(coins, COIN_BYTES)));
+
+        Grid grid = game.getGrid();
+        int tiles = columns * config.getRows();
+        readTiles(in, tiles, columns, grid, Grid.WALL);
+        readTiles(in, tiles, columns, grid, Grid.BOMB);
+        int end = in.position();
+
+        in.position(coinsAt);
+        for (int i = 0; i < coins; i++) {
+            int tile = in.getInt();
+            boolean special = in.get() != 0;
+            if (!game.restoreCoin(tile % columns, tile / columns, special, in.getLong())) {
+                throw new IOException("bad snapshot: coin on tile " + tile + " can't go back on the board");
+            }
+        }
+        in.position(end);
+
+        game.restoreState(ticks, rngState, over == 1, over == 2, pendingSpawns, rejected);
+        return game;
+    }
+
+    private static void readTiles(ByteBuffer in, int tiles, int columns, Grid grid, byte kind) {
+        byte encoding = in.get();
+        int count = in.getInt();
+        if (encoding == TILE_LIST) {
+            for (int i = 0; i < count; i++) {
+                addTile(grid, kind, in.getInt(), columns);
+            }
+            return;
+        }
+        int bytes = (tiles + 7) / 8;
+        for (int i = 0; i < bytes; i++) {
+            int bits = in.get() & 0xFF;
+            while (bits != 0) {
+                int bit = Integer.numberOfTrailingZeros(bits);
+                addTile(grid, kind, (i << 3) + bit, columns);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private static void addTile(Grid grid, byte kind, int tile, int columns) {
+        if (kind == Grid.WALL) {
+            grid.addWall(tile % columns, tile / columns);
+        } else {
+            grid.addBomb(tile % columns, tile / columns);
+        }
+    }
+
+    // how many bytes the snapshot takes up on disk
+    public int size() {
+        return state.remaining() + layout.bytes().remaining();
+    }
+
+}
@@ -0,0 +1,191 @@
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+
+public class Sprites {
+
+    // paths of every image the game draws. you can use just the filename if the
+    // image file is in your project folder, otherwise you need to provide the file path.
+    public static final String GOBLIN = "images/goblin.png";
+    public static final String WALL = "images/wall.png";
+    public static final String BOMB = "images/bomb.png";
+    public static final String COIN = "images/coin.png";
+    public static final String SPECIAL_COIN = "images/Special Coin.png";
+    // the same images as small numbers, so things on the board can say which
+    // image they use with a single byte, see Entities
+    public static final byte GOBLIN_ID = 0;
+    public static final byte WALL_ID = 1;
+    public static final byte BOMB_ID = 2;
+    public static final byte COIN_ID = 3;
+    public static final byte SPECIAL_COIN_ID = 4;
+    private static final String[] PATHS = {GOBLIN, WALL, BOMB, COIN, SPECIAL_COIN};
+
+    // every image that has been loaded so far, keyed by its path. all the walls,
+    // bombs and coins on the board share the same image instead of each one
+    // reading the file from disk again
+    private static final Map<String, BufferedImage> cache = new ConcurrentHashMap<>();
+    // the same images scaled to the tile size in use, for boards that don't use
+    // the size the images were drawn at. only the last size asked for is kept
+    private static final Map<String, BufferedImage> scaled = new ConcurrentHashMap<>();
+    // how many times a file was actually read from disk, and how many times a
+    // cached image was handed out instead. every file should only be decoded once
+    private static final AtomicInteger decodes = new AtomicInteger();
+    private static final AtomicInteger hits = new AtomicInteger();
+    // every image by id, already scaled to the tile size in atlasSize. drawing
+    // a board full of things looks each one up here with a plain array index
+    private static volatile BufferedImage[] atlas;
+    private static volatile int atlasSize;
+
+    private Sprites() {
+        // this class only has static methods
+    }
+
+    public static BufferedImage get(String path) {
+        BufferedImage image = cache.get(path);
+        if (image != null) {
+            hits.incrementAndGet();
+            return image;
+        }
+        // computeIfAbsent() makes sure that two threads asking for the same image
+        // at the same time (like the coin spawner and the game loop) only decode it once
+        return cache.computeIfAbsent(path, Sprites::load);
+    }
+
+    // returns the image at the given path, scaled to size x size pixels
+    public static BufferedImage get(String path, int size) {
+        BufferedImage image = get(path);
+        if (image == null || (image.getWidth() == size && image.getHeight() == size)) {
+            return image;
+        }
+        BufferedImage resized = scaled.get(path);
+        if (resized == null || resized.getWidth() != size) {
+            // scale it once here instead of every time it's drawn
+            resized = scale(image, size);
+            scaled.put(path, resized);
+        }
+        return resized;
+    }
+
+    // returns the image with the given id, scaled to size x size pixels
+    public static BufferedImage get(byte id, int size) {
+        BufferedImage[] images = atlas;
+        if (images == null || atlasSize != size) {
+            images = prepare(size);
+        }
+        return images[id];
+    }
+
+    // scales every image to size x size pixels ahead of time, so the first
+    // frame drawn at that size doesn't have to
+    public static BufferedImage[] prepare(int size) {
+        BufferedImage[] images = new BufferedImage[PATHS.length];
+        for (int i = 0; i < PATHS.length; i++) {
+            images[i] = get(PATHS[i], size);
+        }
+        atlasSize = size;
+        atlas = images;
+        return images;
+    }
+
+    // how many images preload() loads
+    public static int getImageCount() {
+        return PATHS.length;
+    }
+
+    // reads every image the game draws on the given executor, all at once,
+    // so nothing has to be read from disk while the game is being drawn.
+    // onLoaded is called (on the executor) after each image. the future
+    // completes once they're all loaded
+    public static CompletableFuture<Void> preload(Executor executor, Runnable onLoaded) {
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[PATHS.length];
+        for (int i = 0; i < PATHS.length; i++) {
+            String path = PATHS[i];
+            loads[i] = CompletableFuture.runAsync(() -> {
+                get(path);
+                onLoaded.run();
+            }, executor);
+        }
+        return CompletableFuture.allOf(loads);
+    }
+
+    private static BufferedImage scale(BufferedImage image, int size) {
+        BufferedImage resized = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = resized.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(image, 0, 0, size, size, null);
+        g2d.dispose();
+        return toCompatible(resized);
+    }
+
+    private static BufferedImage load(String path) {
+        GameEvents.AssetLoad event = GameEvents.beginAssetLoad();
+        BufferedImage decoded;
+        try {
+            decoded = ImageIO.read(new File(path));
+        } catch (IOException exc) {
+            System.out.println("Error opening image file: " + exc.getMessage());
+            return null;
+        }
+        decodes.incrementAndGet();
+        if (decoded == null) {
+            System.out.println("Error opening image file: unknown format " + path);
+            return null;
+        }
+        BufferedImage compatible = toCompatible(decoded);
+        GameEvents.endAssetLoad(event, path, compatible.getWidth(), compatible.getHeight());
+        return compatible;
+    }
+
+    private static BufferedImage toCompatible(BufferedImage decoded) {
+        // without a display there is nothing to be compatible with
+        if (GraphicsEnvironment.isHeadless()) {
+            return decoded;
+        }
+        // copy the image into the pixel format the screen uses so that drawing it
+        // every frame is a straight copy instead of a conversion
+        GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+            .getDefaultScreenDevice()
+            .getDefaultConfiguration();
+        BufferedImage compatible = config.createCompatibleImage(
+            decoded.getWidth(),
+            decoded.getHeight(),
+            decoded.getTransparency()
+        );
+        Graphics2D g2d = compatible.createGraphics();
+        g2d.drawImage(decoded, 0, 0, null);
+        g2d.dispose();
+        return compatible;
+    }
+
+    // makes a blank image to draw into ahead of time and copy onto the screen
+    // every frame. transparency is Transparency.OPAQUE or TRANSLUCENT, and
+    // config is the screen we're drawing to, or null if we're not on screen
+    public static BufferedImage createImage(int width, int height, int transparency, GraphicsConfiguration config) {
+        // once we're on screen, match the screen's pixel format so the copy is fast
+        if (config != null) {
+            return config.createCompatibleImage(width, height, transparency);
+        }
+        int type = transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        return new BufferedImage(width, height, type);
+    }
+
+    public static int getDecodeCount() {
+        return decodes.get();
+    }
+
+    public static int getHitCount() {
+        return hits.get();
+    }
+
+}
@@ -0,0 +1,84 @@
+// decides when the game needs its next tick. while something is moving (the
+// bot is playing, keys are waiting their turn or the overlay is counting)
+// that's one tick every tick like always. the rest of the time nothing in the
+// game changes until a key is pressed, a coin is spawned or a coin runs out
+// of time, so instead of ticking 40 times a second for nothing the game can
+// sleep until the next coin runs out, and wake() brings it back early for
+// keys and spawns.
+//
+// the ticks slept through are caught up in one go with Game.skipQuietTicks(),
+// so coins still vanish on time and the tick count keeps up with the clock,
+// same as if the game had ticked the whole time. nothing here touches a
+// clock itself, the times are passed in, so Benchmarks can run it on a
+// pretend one
+public class TickScheduler {
+
+    // returned when there is nothing to wake up for until wake() is called
+    public static final long FOREVER = Long.MAX_VALUE;
+
+    // how long one tick lasts
+    private final long tickNanos;
+    // when the last tick ran
+    private long lastTick;
+    // whether the game is sleeping through more than one tick right now
+    private boolean sleeping;
+    // how many ticks were caught up by skipQuietTicks() instead of run, which
+    // the idle check in Benchmarks adds back up against a timer that never sleeps
+    private long skippedTicks;
+
+    public TickScheduler(long tickNanos) {
+        this.tickNanos = tickNanos;
+    }
+
+    // call right before stepping the game. if it was asleep, the ticks that
+    // would have run in the meantime are caught up first
+    public void beforeTick(Game game, long now) {
+        if (sleeping) {
+            // rounded, since timers don't fire on the exact nanosecond
+            long slept = (now - lastTick + tickNanos / 2) / tickNanos;
+            skippedTicks += game.skipQuietTicks(slept - 1);
+        }
+        lastTick = now;
+    }
+
+    // call right after stepping the game. busy means something is moving
+    // that needs every tick. returns how long to wait before the next tick,
+    // in nanoseconds, or FOREVER to wait for wake()
+    public long afterTick(Game game, boolean busy) {
+        long quiet = game.getQuietTicks();
+        sleeping = !busy && quiet > 1;
+        if (!sleeping) {
+            return tickNanos;
+        }
+        if (quiet > FOREVER / tickNanos) {
+            return FOREVER;
+        }
+        return quiet * tickNanos;
+    }
+
+    // call when something happens that needs a tick soon, like a key press or
+    // a new coin. returns how long to wait for the next tick, which lands
+    // where it would have if the game had never slept, or -1 if the game
+    // isn't sleeping and the next tick is already on its way
+    public long wake(long now) {
+        if (!sleeping) {
+            return -1;
+        }
+        long sinceLast = Math.max(0, now - lastTick);
+        return tickNanos - sinceLast % tickNanos;
+    }
+
+    // back to one tick every tick, like when a new round starts
+    public void reset() {
+        sleeping = false;
+    }
+
+    public boolean isSleeping() {
+        return sleeping;
+    }
+
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+}
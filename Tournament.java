@@ -0,0 +1,157 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// plays lots of games at once without a window, on every core, to see how
+// hard a set of settings is. run it like
+//
+//     java -Dgoblin.bombs=20 Tournament 10000 bot results.csv
+//
+// to play 10000 games with the bot (or "random") and write one line per game
+// to results.csv. the board is set up with the usual goblin.* properties (see
+// GameConfig), and these ones too:
+//
+//     goblin.seed        seed of the first game, the others count up from it
+//     goblin.spawnTicks  ticks between coin spawns (80, every 2 seconds)
+//     goblin.maxTicks    ticks after which a game that hasn't ended is called off
+//     goblin.threads     how many games run at once (one per core)
+//
+public class Tournament {
+
+    // the coin spawner asks for a coin every SPAWN_PERIOD seconds
+    private static final int DEFAULT_SPAWN_TICKS = CoinSpawner.SPAWN_PERIOD * Game.TICKS_PER_SECOND;
+    // mixed into a game's seed to get its policy's seed
+    private static final long POLICY_SEED_MIX = 0x2545F4914F6CDD1DL;
+    // ten minutes of play
+    private static final int DEFAULT_MAX_TICKS = 10 * 60 * Game.TICKS_PER_SECOND;
+
+    // how one game went
+    static class Result {
+        final long seed;
+        final boolean won;
+        final boolean lost;
+        final long ticks;
+        final int score;
+        final int deaths;
+
+        Result(long seed, Game game) {
+            this.seed = seed;
+            won = game.isWon();
+            lost = game.isLost();
+            ticks = game.getTicks();
+            score = game.getScore();
+            deaths = Player.STARTING_LIVES - game.getLives();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java Tournament <games> <bot|random> [results.csv]");
+            System.exit(2);
+        }
+        int games = Integer.parseInt(args[0]);
+        String policy = args[1];
+        // fail now on a bad name instead of in every game
+        Policy.forName(policy, 0);
+
+        GameConfig config = GameConfig.fromSystemProperties();
+        // the random default seed is fine, but a fixed one makes runs comparable
+        long firstSeed = config.getSeed();
+        int spawnTicks = Integer.getInteger("goblin.spawnTicks", DEFAULT_SPAWN_TICKS);
+        int maxTicks = Integer.getInteger("goblin.maxTicks", DEFAULT_MAX_TICKS);
+        int threads = Integer.getInteger("goblin.threads", Runtime.getRuntime().availableProcessors());
+
+        long start = System.nanoTime();
+        Result[] results;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // every game has its own Game, Rng and policy, so they share nothing
+            // and the pool can split them up however it likes
+            results = pool.submit(() -> IntStream.range(0, games)
+                .parallel()
+                .mapToObj(i -> play(config.withSeed(firstSeed + i), policy, spawnTicks, maxTicks))
+                .toArray(Result[]::new)
+            ).get();
+        } catch (InterruptedException | ExecutionException exc) {
+            System.out.println("Error playing the games: " + exc);
+            System.exit(1);
+            return;
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (args.length > 2) {
+            writeCsv(args[2], results);
+        }
+        printSummary(results, policy, threads, elapsed);
+    }
+
+    // the seed for the random policy of a game. the policy has an Rng of its
+    // own, and giving it the game's seed would make its key presses the very
+    // same numbers the game places the board and rolls coins with
+    static long policySeed(long gameSeed) {
+        return new Rng(gameSeed ^ POLICY_SEED_MIX).nextLong();
+    }
+
+    // plays one game from start to finish, or until maxTicks
+    static Result play(GameConfig config, String policyName, int spawnTicks, int maxTicks) {
+        Game game = new Game(config);
+        Policy policy = Policy.forName(policyName, policySeed(config.getSeed()));
+        while (!game.isOver() && game.getTicks() < maxTicks) {
+            // the spawner's first coin comes straight away, like CoinSpawner
+            if (game.getTicks() % spawnTicks == 0) {
+                game.requestCoin();
+            }
+            game.step(policy.nextInput(game));
+        }
+        return new Result(config.getSeed(), game);
+    }
+
+    private static void writeCsv(String path, Result[] results) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8)) {
+            out.write("seed,result,ticks,score,deaths");
+            out.newLine();
+            for (Result result : results) {
+                String outcome = result.won ? "won" : result.lost ? "lost" : "unfinished";
+                out.write(result.seed + "," + outcome + "," + result.ticks + "," + result.score + "," + result.deaths);
+                out.newLine();
+            }
+        }
+    }
+
+    private static void printSummary(Result[] results, String policy, int threads, long elapsed) {
+        int wins = 0;
+        int losses = 0;
+        long winTicks = 0;
+        long deaths = 0;
+        long ticks = 0;
+        for (Result result : results) {
+            if (result.won) {
+                wins++;
+                winTicks += result.ticks;
+            } else if (result.lost) {
+                losses++;
+            }
+            deaths += result.deaths;
+            ticks += result.ticks;
+        }
+        int games = results.length;
+        double seconds = elapsed / 1e9;
+        System.out.printf("%d games with %s on %d threads in %.2f s (%.0f games per second, %.0f ticks per second)%n",
+            games, policy, threads, seconds, games / seconds, ticks / seconds);
+        System.out.printf("win rate %.1f%%, lost %.1f%%, unfinished %.1f%%%n",
+            100.0 * wins / games, 100.0 * losses / games, 100.0 * (games - wins - losses) / games);
+        if (wins > 0) {
+            System.out.printf("average ticks to %d gold: %.0f (%.1f s of play)%n",
+                Game.WINNING_SCORE, (double) winTicks / wins, (double) winTicks / wins / Game.TICKS_PER_SECOND);
+        }
+        System.out.printf("average deaths per game: %.2f%n", (double) deaths / games);
+    }
+
+}